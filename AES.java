@@ -1,316 +1,443 @@
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Base64;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class AES {
-    private final int[][] keySchedule; // Stores the expanded key
-    private final boolean debug; // Debug flag for detailed output
-    private static final int BLOCK_SIZE = 16; // 128 bits
-    private static final int Nk = 4; // Number of 32-bit words in key (128/32 = 4)
-    private static final int Nb = 4; // Number of columns in state (128/32 = 4)
-    private static final int Nr = 10; // Number of rounds for 128-bit key
-
-    private static final HashMap<Integer, Integer> RC = new HashMap<>();
-    static {
-        RC.put(1, 0x01);
-        RC.put(2, 0x02);
-        RC.put(3, 0x04);
-        RC.put(4, 0x08);
-        RC.put(5, 0x10);
-        RC.put(6, 0x20);
-        RC.put(7, 0x40);
-        RC.put(8, 0x80);
-        RC.put(9, 0x1B);
-        RC.put(10, 0x36);
+    private final AESEngine engine; // Table-driven block core holding the expanded key
+    private final BulkEngine bulk; // Multi-block core for ECB, CTR and CBC decryption, chosen by aes.engine
+    private final RoundTracer tracer; // Null unless tracing, in which case the reference path is used
+    private final String keyText; // The key as given to the String constructor, for the trace's Key line
+    private static final int BLOCK_SIZE = AESEngine.BLOCK_SIZE; // 128 bits
+    private static final int Nb = AESEngine.Nb; // Number of columns in state (128/32 = 4)
+    private static final int Nr = AESEngine.Nr; // Number of rounds for 128-bit key
+    private static final int PARALLEL_CHUNK = 64 * 1024; // Bytes handled by one fork-join leaf
+    private static final int BATCH_BYTES = BitslicedEngine.BATCH * BLOCK_SIZE; // Blocks handed to the bulk engine at once
+
+    /**
+     * Text encodings for the ciphertext produced by the String API.  BASE64 is a third smaller than HEX.
+     */
+    public enum Encoding {
+        HEX,
+        BASE64
     }
 
+    /**
+     * @param debug When true, every block is traced to standard output in the format of "AES Debug.txt"
+     */
     public AES(String key, boolean debug) {
-        this.debug = debug;
-        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        this(key.getBytes(StandardCharsets.UTF_8), debug ? new TextRoundTracer(System.out) : null, null, key);
+    }
+
+    public AES(byte[] key, boolean debug) {
+        this(key, debug ? new TextRoundTracer(System.out) : null, null, null);
+    }
+
+    /**
+     * Takes the expanded key schedule from the cache when the key has been seen before, so switching between
+     * many keys costs a hash lookup rather than a key expansion.
+     */
+    public AES(byte[] key, AESKeyCache cache) {
+        this(key, null, cache, null);
+    }
+
+    private AES(byte[] keyBytes, RoundTracer tracer, AESKeyCache cache, String keyText) {
         if (keyBytes.length != 16) {
             throw new IllegalArgumentException("Key must be 16 bytes long");
         }
-        keySchedule = keyExpansion(keyBytes);
-        if (debug) {
-            printKeySchedule();
-        }
+        this.engine = cache != null ? cache.lookup(keyBytes) : new AESEngine(keyBytes);
+        this.bulk = BulkEngine.of(engine);
+        this.tracer = tracer;
+        this.keyText = keyText;
+    }
+
+    private AES(AESEngine engine, BulkEngine bulk, RoundTracer tracer, String keyText) {
+        this.engine = engine;
+        this.bulk = bulk;
+        this.tracer = tracer == RoundTracer.NONE ? null : tracer;
+        this.keyText = keyText;
+    }
+
+    /**
+     * Returns a view of this cipher, sharing its key schedule, that reports every step of every block to the
+     * given tracer.  Instances without a tracer are unaffected, so tracing can be switched on for one request.
+     */
+    public AES traced(RoundTracer tracer) {
+        return new AES(engine, bulk, tracer, keyText);
     }
 
     public String encrypt(String plaintext, boolean cbcMode) {
+        return encrypt(plaintext, cbcMode, Encoding.HEX);
+    }
+
+    public String encrypt(String plaintext, boolean cbcMode, Encoding encoding) {
         byte[] plaintextBytes = plaintext.getBytes(StandardCharsets.UTF_8);
         byte[] padded = pad(plaintextBytes);
         byte[] iv = cbcMode ? generateIV() : new byte[0];
         byte[] ciphertext = new byte[cbcMode ? padded.length + BLOCK_SIZE : padded.length];
 
-        if (debug) {
-            System.out.println("Plaintext: " + bytesToHex(plaintextBytes));
+        if (tracer != null) {
+            tracer.message("Original", plaintext);
+            if (keyText != null) {
+                tracer.message("Key", keyText);
+            }
+            tracer.keySchedule(keySchedule());
         }
 
         if (cbcMode) {
             System.arraycopy(iv, 0, ciphertext, 0, BLOCK_SIZE);
         }
 
-        byte[] previous = iv.length > 0 ? iv : new byte[BLOCK_SIZE];
-        for (int i = 0; i < padded.length; i += BLOCK_SIZE) {
-            byte[] block = Arrays.copyOfRange(padded, i, i + BLOCK_SIZE);
-            if (cbcMode) {
-                block = xor(block, previous);
+        if (cbcMode) {
+            for (int i = 0; i < padded.length; i += BLOCK_SIZE) {
+                // The previous ciphertext block (or the IV) sits directly before the output slot
+                xorInto(padded, i, ciphertext, i);
+                encryptBlock(padded, i, ciphertext, i + BLOCK_SIZE);
             }
-            int[][] state = bytesToState(block);
-            state = cipher(state, true);
-            byte[] encryptedBlock = stateToBytes(state);
-            System.arraycopy(encryptedBlock, 0, ciphertext, cbcMode ? i + BLOCK_SIZE : i, BLOCK_SIZE);
-            previous = encryptedBlock;
+        } else {
+            encryptECB(padded, 0, ciphertext, 0, padded.length / BLOCK_SIZE);
         }
 
-        String result = bytesToHex(ciphertext);
-        if (debug) {
-            System.out.println("Ciphertext: " + result);
+        String result = encode(ciphertext, encoding);
+        if (tracer != null) {
+            tracer.message("Encrypted", result);
+            tracer.flush();
         }
         return result;
     }
 
     public String decrypt(String ciphertext, boolean cbcMode) {
-        byte[] ciphertextBytes = hexToBytes(ciphertext);
+        return decrypt(ciphertext, cbcMode, Encoding.HEX, ForkJoinPool.commonPool());
+    }
+
+    public String decrypt(String ciphertext, boolean cbcMode, Encoding encoding) {
+        return decrypt(ciphertext, cbcMode, encoding, ForkJoinPool.commonPool());
+    }
+
+    public String decrypt(String ciphertext, boolean cbcMode, ForkJoinPool pool) {
+        return decrypt(ciphertext, cbcMode, Encoding.HEX, pool);
+    }
+
+    /**
+     * As {@link #decrypt(String, boolean, Encoding)}, splitting large ciphertexts across the given pool.  CBC decryption of
+     * a block needs only that block and the ciphertext before it, so block ranges are decrypted independently
+     * and the padding is checked once at the end.
+     */
+    public String decrypt(String ciphertext, boolean cbcMode, Encoding encoding, ForkJoinPool pool) {
+        byte[] ciphertextBytes = decode(ciphertext, encoding);
         if (ciphertextBytes.length % BLOCK_SIZE != 0) {
             throw new IllegalArgumentException("Invalid ciphertext length");
         }
 
-        byte[] iv = cbcMode ? Arrays.copyOfRange(ciphertextBytes, 0, BLOCK_SIZE) : new byte[0];
-        byte[] data = cbcMode ? Arrays.copyOfRange(ciphertextBytes, BLOCK_SIZE, ciphertextBytes.length) : ciphertextBytes;
-        byte[] decrypted = new byte[data.length];
-
-        if (debug) {
-            System.out.println("Ciphertext: " + ciphertext);
+        int offset = cbcMode ? BLOCK_SIZE : 0;
+        if (ciphertextBytes.length <= offset) {
+            throw new IllegalArgumentException("Invalid ciphertext length");
         }
+        byte[] decrypted = new byte[ciphertextBytes.length - offset];
 
-        byte[] previous = iv.length > 0 ? iv : new byte[BLOCK_SIZE];
-        for (int i = 0; i < data.length; i += BLOCK_SIZE) {
-            byte[] block = Arrays.copyOfRange(data, i, i + BLOCK_SIZE);
-            int[][] state = bytesToState(block);
-            state = cipher(state, false);
-            byte[] decryptedBlock = stateToBytes(state);
-            if (cbcMode) {
-                decryptedBlock = xor(decryptedBlock, previous);
-            }
-            System.arraycopy(decryptedBlock, 0, decrypted, i, BLOCK_SIZE);
-            previous = block;
+        if (tracer != null) {
+            tracer.keySchedule(keySchedule());
         }
 
+        run(new DecryptTask(ciphertextBytes, offset, decrypted, cbcMode, 0, decrypted.length), pool);
+
         byte[] unpadded = unpad(decrypted);
         String result = new String(unpadded, StandardCharsets.UTF_8);
-        if (debug) {
-            System.out.println("Plaintext: " + bytesToHex(unpadded));
+        if (tracer != null) {
+            tracer.message("Decrypted", result);
+            tracer.flush();
         }
         return result;
     }
 
-    private int[][] cipher(int[][] state, boolean encryptMode) {
-        int[][] inputState = new int[4][4];
-        for (int r = 0; r < 4; r++) {
-            inputState[r] = state[r].clone();
-        }
-
-        if (encryptMode) {
-            if (debug) {
-                System.out.println("Round 0 Input: ");
-                printState(inputState);
+    /**
+     * Encrypts src.remaining() bytes into dst, appending PKCS#7 padding.  Blocks are read and written with
+     * absolute indexes through a scratch array (one block for CBC, a batch of BATCH_BYTES for ECB), so heap and
+     * direct buffers work alike.  dst needs paddedLength(src.remaining()) bytes remaining, which src never has
+     * itself, so encrypting in place takes a {@link ByteBuffer#duplicate()} of src as dst, positioned at the
+     * same index with its limit raised to leave room for the padding.
+     * @param iv the caller-managed CBC IV, or null for ECB mode; it is not written to dst
+     * @return the number of bytes written to dst
+     */
+    public int encrypt(ByteBuffer src, ByteBuffer dst, byte[] iv) {
+        int length = src.remaining();
+        int outLength = paddedLength(length);
+        if (dst.remaining() < outLength) {
+            throw new IllegalArgumentException("Destination buffer too small");
+        }
+        if (iv != null && iv.length != BLOCK_SIZE) {
+            throw new IllegalArgumentException("IV must be 16 bytes long");
+        }
+        int srcPos = src.position();
+        int dstPos = dst.position();
+        // CBC chains one block at a time; ECB blocks are independent, so they go to the bulk engine in batches
+        byte[] batch = new byte[iv != null ? BLOCK_SIZE : BATCH_BYTES];
+        byte[] chain = iv != null ? iv.clone() : null;
+
+        for (int i = 0; i < outLength; i += batch.length) {
+            int n = Math.min(batch.length, outLength - i);
+            int m = Math.min(n, length - i);
+            src.get(srcPos + i, batch, 0, m);
+            if (m < n) {
+                // Final block: remaining plaintext followed by PKCS#7 padding
+                Arrays.fill(batch, m, n, (byte) (outLength - length));
             }
-
-            addRoundKey(state, getRoundKey(0));
-            if (debug) {
-                System.out.println("Round 0 AddRoundKey: ");
-                printState(getRoundKey(0));
-                printState(state);
+            if (chain != null) {
+                xorInto(chain, 0, batch, 0);
+                encryptBlock(chain, 0, chain, 0);
+                dst.put(dstPos + i, chain, 0, BLOCK_SIZE);
+            } else {
+                encryptECB(batch, 0, batch, 0, n / BLOCK_SIZE);
+                dst.put(dstPos + i, batch, 0, n);
             }
+        }
 
-            for (int round = 1; round < Nr; round++) {
-                if (debug) {
-                    System.out.println("Round " + round + " Input: ");
-                    printState(state);
-                }
-
-                subBytes(state, true);
-                if (debug) {
-                    System.out.println("Round " + round + " SubBytes: ");
-                    printState(state);
-                }
-
-                shiftRows(state, true);
-                if (debug) {
-                    System.out.println("Round " + round + " ShiftRows: ");
-                    printState(state);
-                }
-
-                mixColumns(state, true);
-                if (debug) {
-                    System.out.println("Round " + round + " MixColumns: ");
-                    printState(state);
-                }
+        src.position(srcPos + length);
+        dst.position(dstPos + outLength);
+        return outLength;
+    }
 
-                addRoundKey(state, getRoundKey(round));
-                if (debug) {
-                    System.out.println("Round " + round + " AddRoundKey: ");
-                    printState(getRoundKey(round));
-                    printState(state);
+    /**
+     * Decrypts src.remaining() bytes of padded ciphertext into dst and strips the PKCS#7 padding.  The
+     * plaintext is never longer than the ciphertext, so src and dst may be the same buffer (in place).
+     * @param iv the caller-managed CBC IV, or null for ECB mode
+     * @return the plaintext length; dst's position is advanced past the plaintext only
+     */
+    public int decrypt(ByteBuffer src, ByteBuffer dst, byte[] iv) {
+        int length = src.remaining();
+        if (length == 0 || length % BLOCK_SIZE != 0) {
+            throw new IllegalArgumentException("Invalid ciphertext length");
+        }
+        if (dst.remaining() < length) {
+            throw new IllegalArgumentException("Destination buffer too small");
+        }
+        if (iv != null && iv.length != BLOCK_SIZE) {
+            throw new IllegalArgumentException("IV must be 16 bytes long");
+        }
+        int srcPos = src.position();
+        int dstPos = dst.position();
+        byte[] batch = new byte[BATCH_BYTES];
+        byte[] plain = new byte[BATCH_BYTES];
+        byte[] previous = iv != null ? iv.clone() : null;
+
+        for (int i = 0; i < length; i += batch.length) {
+            int n = Math.min(batch.length, length - i);
+            src.get(srcPos + i, batch, 0, n);
+            decryptECB(batch, 0, plain, 0, n / BLOCK_SIZE);
+            if (previous != null) {
+                xorInto(plain, 0, previous, 0);
+                for (int j = BLOCK_SIZE; j < n; j += BLOCK_SIZE) {
+                    xorInto(plain, j, batch, j - BLOCK_SIZE);
                 }
+                // Keep the last ciphertext block for the next batch, since dst may overwrite it in place
+                System.arraycopy(batch, n - BLOCK_SIZE, previous, 0, BLOCK_SIZE);
             }
+            dst.put(dstPos + i, plain, 0, n);
+        }
 
-            if (debug) {
-                System.out.println("Round " + Nr + " Input: ");
-                printState(state);
-            }
-
-            subBytes(state, true);
-            if (debug) {
-                System.out.println("Round " + Nr + " SubBytes: ");
-                printState(state);
-            }
-
-            shiftRows(state, true);
-            if (debug) {
-                System.out.println("Round " + Nr + " ShiftRows: ");
-                printState(state);
-            }
-
-            addRoundKey(state, getRoundKey(Nr));
-            if (debug) {
-                System.out.println("Round " + Nr + " AddRoundKey: ");
-                printState(getRoundKey(Nr));
-                printState(state);
-            }
-        } else {
-            if (debug) {
-                System.out.println("Round 0 Input: ");
-                printState(inputState);
-            }
-
-            addRoundKey(state, getRoundKey(Nr));
-            if (debug) {
-                System.out.println("Round 0 AddRoundKey: ");
-                printState(getRoundKey(Nr));
-                printState(state);
+        int paddingLength = dst.get(dstPos + length - 1) & 0xFF;
+        if (paddingLength < 1 || paddingLength > BLOCK_SIZE) {
+            throw new IllegalArgumentException("Invalid padding");
+        }
+        for (int i = length - paddingLength; i < length; i++) {
+            if ((dst.get(dstPos + i) & 0xFF) != paddingLength) {
+                throw new IllegalArgumentException("Invalid padding bytes");
             }
+        }
 
-            shiftRows(state, false);
-            if (debug) {
-                System.out.println("Round 0 InvShiftRows: ");
-                printState(state);
-            }
+        src.position(srcPos + length);
+        dst.position(dstPos + length - paddingLength);
+        return length - paddingLength;
+    }
 
-            subBytes(state, false);
-            if (debug) {
-                System.out.println("Round 0 InvSubBytes: ");
-                printState(state);
-            }
+    /**
+     * Returns the ciphertext length (excluding any IV) for a plaintext of the given length after PKCS#7 padding.
+     */
+    public static int paddedLength(int length) {
+        return (length / BLOCK_SIZE + 1) * BLOCK_SIZE;
+    }
 
-            for (int round = 1; round < Nr; round++) {
-                if (debug) {
-                    System.out.println("Round " + round + " Input: ");
-                    printState(state);
-                }
+    /**
+     * Encrypts input in counter (CTR) mode.  No padding is applied, so the output is the same length as the
+     * input.  The 16-byte counter block starts at iv and is incremented as one 128-bit big-endian integer per
+     * block.  Inputs larger than one chunk are split across the common fork-join pool.
+     */
+    public byte[] encryptCTR(byte[] input, byte[] iv) {
+        return encryptCTR(input, iv, ForkJoinPool.commonPool());
+    }
 
-                addRoundKey(state, getRoundKey(Nr - round));
-                if (debug) {
-                    System.out.println("Round " + round + " AddRoundKey: ");
-                    printState(getRoundKey(Nr - round));
-                    printState(state);
-                }
+    /**
+     * As {@link #encryptCTR(byte[], byte[])}, using the given pool.  Every chunk derives its own counter from
+     * iv and its block index, so the output is identical for any pool size.
+     */
+    public byte[] encryptCTR(byte[] input, byte[] iv, ForkJoinPool pool) {
+        if (iv == null || iv.length != BLOCK_SIZE) {
+            throw new IllegalArgumentException("IV must be 16 bytes long");
+        }
+        byte[] output = new byte[input.length];
+        run(new CtrTask(ByteBuffer.wrap(input), 0, ByteBuffer.wrap(output), 0, iv, 0, input.length), pool);
+        return output;
+    }
 
-                mixColumns(state, false);
-                if (debug) {
-                    System.out.println("Round " + round + " InvMixColumns: ");
-                    printState(state);
-                }
+    /**
+     * Applies CTR mode to src.remaining() bytes of src, writing the result to dst and advancing both positions.
+     * Works on heap, direct and memory-mapped buffers; chunks are read and written with absolute indexes, so
+     * they can be processed concurrently on the given pool.
+     */
+    public void encryptCTR(ByteBuffer src, ByteBuffer dst, byte[] iv, ForkJoinPool pool) {
+        if (iv == null || iv.length != BLOCK_SIZE) {
+            throw new IllegalArgumentException("IV must be 16 bytes long");
+        }
+        int length = src.remaining();
+        if (dst.remaining() < length) {
+            throw new IllegalArgumentException("Destination buffer too small");
+        }
+        int srcPos = src.position();
+        int dstPos = dst.position();
+        run(new CtrTask(src, srcPos, dst, dstPos, iv, 0, length), pool);
+        src.position(srcPos + length);
+        dst.position(dstPos + length);
+    }
 
-                shiftRows(state, false);
-                if (debug) {
-                    System.out.println("Round " + round + " InvShiftRows: ");
-                    printState(state);
-                }
+    /**
+     * CTR decryption is the same keystream XOR as encryption.
+     */
+    public byte[] decryptCTR(byte[] input, byte[] iv) {
+        return encryptCTR(input, iv);
+    }
 
-                subBytes(state, false);
-                if (debug) {
-                    System.out.println("Round " + round + " InvSubBytes: ");
-                    printState(state);
-                }
-            }
+    public byte[] decryptCTR(byte[] input, byte[] iv, ForkJoinPool pool) {
+        return encryptCTR(input, iv, pool);
+    }
 
-            if (debug) {
-                System.out.println("Round " + Nr + " Input: ");
-                printState(state);
-            }
+    /**
+     * Encrypts len bytes (whole blocks) of buf in place.  In CBC mode chain holds the IV or the last ciphertext
+     * block of the previous call and is updated to this call's last ciphertext block; pass null for ECB.
+     */
+    void encryptBlocks(byte[] buf, int off, int len, byte[] chain) {
+        if (chain == null) {
+            encryptECB(buf, off, buf, off, len / BLOCK_SIZE);
+            return;
+        }
+        for (int i = off; i < off + len; i += BLOCK_SIZE) {
+            xorInto(buf, i, chain, 0);
+            encryptBlock(buf, i, buf, i);
+            System.arraycopy(buf, i, chain, 0, BLOCK_SIZE);
+        }
+    }
 
-            addRoundKey(state, getRoundKey(0));
-            if (debug) {
-                System.out.println("Round " + Nr + " AddRoundKey: ");
-                printState(getRoundKey(0));
-                printState(state);
+    /**
+     * Decrypts len bytes (whole blocks) of buf in place, carrying the CBC chaining value in chain as
+     * {@link #encryptBlocks(byte[], int, int, byte[])} does.
+     */
+    void decryptBlocks(byte[] buf, int off, int len, byte[] chain) {
+        if (chain == null) {
+            decryptECB(buf, off, buf, off, len / BLOCK_SIZE);
+            return;
+        }
+        byte[] plain = new byte[Math.min(len, BATCH_BYTES)];
+        for (int i = off; i < off + len; i += plain.length) {
+            int n = Math.min(plain.length, off + len - i);
+            decryptECB(buf, i, plain, 0, n / BLOCK_SIZE);
+            xorInto(plain, 0, chain, 0);
+            for (int j = BLOCK_SIZE; j < n; j += BLOCK_SIZE) {
+                xorInto(plain, j, buf, i + j - BLOCK_SIZE);
             }
+            System.arraycopy(buf, i + n - BLOCK_SIZE, chain, 0, BLOCK_SIZE);
+            System.arraycopy(plain, 0, buf, i, n);
         }
-
-        return state;
     }
 
-    private int[][] keyExpansion(byte[] key) {
-        int[][] w = new int[4 * (Nr + 1)][4];
-        for (int i = 0; i < Nk; i++) {
-            for (int j = 0; j < 4; j++) {
-                w[i][j] = key[4 * i + j] & 0xFF;
-            }
+    private void run(RangeTask task, ForkJoinPool pool) {
+        if (tracer != null || task.to - task.from <= PARALLEL_CHUNK) {
+            task.compute(); // Small inputs stay on the caller, and a trace stays in block order
+        } else {
+            pool.invoke(task);
         }
+    }
 
-        for (int i = Nk; i < Nb * (Nr + 1); i++) {
-            int[] temp = w[i - 1];
-            if (i % Nk == 0) {
-                temp = xor(subWord(rotWord(temp)), rcon(i / Nk));
-            } else if (Nk > 6 && i % Nk == 4) {
-                temp = subWord(temp);
+    // Independent blocks go to the bulk engine unless they have to be traced one by one
+    private void encryptECB(byte[] in, int inOff, byte[] out, int outOff, int blocks) {
+        if (tracer == null) {
+            bulk.encryptBlocks(in, inOff, out, outOff, blocks);
+        } else {
+            for (int i = 0; i < blocks * BLOCK_SIZE; i += BLOCK_SIZE) {
+                encryptBlock(in, inOff + i, out, outOff + i);
             }
-            w[i] = xor(w[i - Nk], temp);
         }
-        return w;
     }
 
-    private int[] rotWord(int[] word) {
-        int[] rot = new int[4];
-        rot[0] = word[1];
-        rot[1] = word[2];
-        rot[2] = word[3];
-        rot[3] = word[0];
-        return rot;
+    private void decryptECB(byte[] in, int inOff, byte[] out, int outOff, int blocks) {
+        if (tracer == null) {
+            bulk.decryptBlocks(in, inOff, out, outOff, blocks);
+        } else {
+            for (int i = 0; i < blocks * BLOCK_SIZE; i += BLOCK_SIZE) {
+                decryptBlock(in, inOff + i, out, outOff + i);
+            }
+        }
     }
 
-    private int[] subWord(int[] word) {
-        int[] result = new int[4];
-        for (int i = 0; i < 4; i++) {
-            result[i] = SBox.sbox(word[i]);
+    void encryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
+        if (tracer == null) {
+            engine.encryptBlock(in, inOff, out, outOff);
+        } else {
+            byte[] block = stateToBytes(cipher(bytesToState(Arrays.copyOfRange(in, inOff, inOff + BLOCK_SIZE)), true));
+            System.arraycopy(block, 0, out, outOff, BLOCK_SIZE);
         }
-        return result;
     }
 
-    private int[] rcon(int i) {
-        return new int[]{RC.get(i), 0, 0, 0};
+    void decryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
+        if (tracer == null) {
+            engine.decryptBlock(in, inOff, out, outOff);
+        } else {
+            byte[] block = stateToBytes(cipher(bytesToState(Arrays.copyOfRange(in, inOff, inOff + BLOCK_SIZE)), false));
+            System.arraycopy(block, 0, out, outOff, BLOCK_SIZE);
+        }
     }
 
-    private int[] xor(int[] a, int[] b) {
-        int[] result = new int[a.length];
-        for (int i = 0; i < a.length; i++) {
-            result[i] = a[i] ^ b[i];
+    // Reference state-matrix implementation, only used when a tracer is attached
+    private int[][] cipher(int[][] state, boolean encryptMode) {
+        if (encryptMode) {
+            addRoundKey(state, 0, 0);
+            for (int round = 1; round < Nr; round++) {
+                subBytes(state, true, round);
+                shiftRows(state, true, round);
+                mixColumns(state, true, round);
+                addRoundKey(state, round, round);
+            }
+            subBytes(state, true, Nr);
+            shiftRows(state, true, Nr);
+            addRoundKey(state, Nr, Nr);
+        } else {
+            addRoundKey(state, Nr, 0);
+            shiftRows(state, false, 0);
+            subBytes(state, false, 0);
+            for (int round = 1; round < Nr; round++) {
+                addRoundKey(state, Nr - round, round);
+                mixColumns(state, false, round);
+                shiftRows(state, false, round);
+                subBytes(state, false, round);
+            }
+            addRoundKey(state, 0, Nr);
         }
-        return result;
+        return state;
     }
 
-    private void subBytes(int[][] state, boolean mode) {
+    private void subBytes(int[][] state, boolean mode, int round) {
+        byte[] input = stateToBytes(state);
         for (int r = 0; r < 4; r++) {
             for (int c = 0; c < 4; c++) {
                 state[r][c] = mode ? SBox.sbox(state[r][c]) : SBox.invSbox(state[r][c]);
             }
         }
+        tracer.step(mode ? RoundTracer.Step.SUB_BYTES : RoundTracer.Step.INV_SUB_BYTES, round, input, null, stateToBytes(state));
     }
 
-    private void shiftRows(int[][] state, boolean mode) {
+    private void shiftRows(int[][] state, boolean mode, int round) {
+        byte[] input = stateToBytes(state);
         for (int r = 1; r < 4; r++) {
             int[] temp = new int[4];
             for (int c = 0; c < 4; c++) {
@@ -318,34 +445,51 @@ public class AES {
             }
             state[r] = temp;
         }
+        tracer.step(mode ? RoundTracer.Step.SHIFT_ROWS : RoundTracer.Step.INV_SHIFT_ROWS, round, input, null, stateToBytes(state));
     }
 
-    private void mixColumns(int[][] state, boolean mode) {
+    private void mixColumns(int[][] state, boolean mode, int round) {
+        byte[] input = stateToBytes(state);
         for (int c = 0; c < 4; c++) {
-            int[] col = new int[]{state[0][c], state[1][c], state[2][c], state[3][c]};
-            int[] result = mode ? MixCols.mix(col) : MixCols.invMix(col);
+            int col = (state[0][c] << 24) | (state[1][c] << 16) | (state[2][c] << 8) | state[3][c];
+            col = mode ? MixCols.mixColumn(col) : MixCols.invMixColumn(col);
             for (int r = 0; r < 4; r++) {
-                state[r][c] = result[r];
+                state[r][c] = (col >>> (24 - 8 * r)) & 0xFF;
             }
         }
+        tracer.step(mode ? RoundTracer.Step.MIX_COLUMNS : RoundTracer.Step.INV_MIX_COLUMNS, round, input, null, stateToBytes(state));
     }
 
-    private void addRoundKey(int[][] state, int[][] roundKey) {
+    private void addRoundKey(int[][] state, int keyRound, int round) {
+        byte[] input = stateToBytes(state);
+        int[][] roundKey = getRoundKey(keyRound);
         for (int r = 0; r < 4; r++) {
             for (int c = 0; c < 4; c++) {
                 state[r][c] ^= roundKey[r][c];
             }
         }
+        tracer.step(RoundTracer.Step.ADD_ROUND_KEY, round, input, stateToBytes(roundKey), stateToBytes(state));
     }
 
     private int[][] getRoundKey(int round) {
         int[][] key = new int[4][4];
-        for (int i = 0; i < 4; i++) {
-            key[i] = keySchedule[round * Nb + i];
+        for (int c = 0; c < Nb; c++) {
+            int word = engine.keyWord(round * Nb + c);
+            for (int r = 0; r < 4; r++) {
+                key[r][c] = (word >>> (24 - 8 * r)) & 0xFF;
+            }
         }
         return key;
     }
 
+    private int[] keySchedule() {
+        int[] words = new int[engine.keyWords()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = engine.keyWord(i);
+        }
+        return words;
+    }
+
     private byte[] pad(byte[] input) {
         int paddingLength = BLOCK_SIZE - (input.length % BLOCK_SIZE);
         if (paddingLength == 0) {
@@ -376,18 +520,34 @@ public class AES {
         return Arrays.copyOfRange(input, 0, input.length - paddingLength);
     }
 
+    // Sets counter = iv + blocks (mod 2^128)
+    static void addCounter(byte[] iv, long blocks, byte[] counter) {
+        long carry = blocks;
+        for (int i = BLOCK_SIZE - 1; i >= 0; i--) {
+            long sum = (iv[i] & 0xFF) + (carry & 0xFF);
+            counter[i] = (byte) sum;
+            carry = (carry >>> 8) + (sum >>> 8);
+        }
+    }
+
+    private static void incrementCounter(byte[] counter) {
+        for (int i = BLOCK_SIZE - 1; i >= 0; i--) {
+            if (++counter[i] != 0) {
+                break;
+            }
+        }
+    }
+
     private byte[] generateIV() {
         byte[] iv = new byte[BLOCK_SIZE];
         new SecureRandom().nextBytes(iv);
         return iv;
     }
 
-    private byte[] xor(byte[] a, byte[] b) {
-        byte[] result = new byte[a.length];
-        for (int i = 0; i < a.length; i++) {
-            result[i] = (byte) (a[i] ^ b[i]);
+    private void xorInto(byte[] dst, int dstOff, byte[] src, int srcOff) {
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            dst[dstOff + i] ^= src[srcOff + i];
         }
-        return result;
     }
 
     private int[][] bytesToState(byte[] block) {
@@ -406,43 +566,125 @@ public class AES {
         return block;
     }
 
-    private String bytesToHex(byte[] bytes) {
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bytes) {
-            sb.append(String.format("%02x", b));
+    private String encode(byte[] bytes, Encoding encoding) {
+        return encoding == Encoding.BASE64 ? Base64.getEncoder().encodeToString(bytes) : Hex.encode(bytes);
+    }
+
+    // Both decoders reject characters outside their alphabet; Base64 must also be canonically padded
+    private byte[] decode(String text, Encoding encoding) {
+        if (encoding == Encoding.BASE64) {
+            if (text.length() % 4 != 0) {
+                throw new IllegalArgumentException("Invalid Base64 length");
+            }
+            return Base64.getDecoder().decode(text);
         }
-        return sb.toString();
+        return Hex.decode(text);
     }
 
-    private byte[] hexToBytes(String hex) {
-        int len = hex.length();
-        byte[] data = new byte[len / 2];
-        for (int i = 0; i < len; i += 2) {
-            data[i / 2] = (byte) ((Character.digit(hex.charAt(i), 16) << 4) + Character.digit(hex.charAt(i + 1), 16));
+    // Processes the byte range [from, to), splitting on block boundaries until a range fits one chunk
+    @SuppressWarnings("serial")
+    private abstract class RangeTask extends RecursiveAction {
+        final int from;
+        final int to;
+
+        RangeTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        abstract RangeTask subrange(int from, int to);
+
+        abstract void process();
+
+        @Override
+        protected void compute() {
+            if (to - from > PARALLEL_CHUNK && tracer == null) {
+                int blocks = (to - from + BLOCK_SIZE - 1) / BLOCK_SIZE;
+                int mid = from + (blocks / 2) * BLOCK_SIZE;
+                invokeAll(subrange(from, mid), subrange(mid, to));
+            } else {
+                process();
+            }
         }
-        return data;
     }
 
-    private void printState(int[][] state) {
-        for (int r = 0; r < 4; r++) {
-            for (int c = 0; c < 4; c++) {
-                System.out.print(String.format("%02x ", state[r][c]));
+    // Applies the CTR keystream, deriving the first counter of the range from its block index
+    @SuppressWarnings("serial")
+    private final class CtrTask extends RangeTask {
+        private final ByteBuffer input;
+        private final int inputBase;
+        private final ByteBuffer output;
+        private final int outputBase;
+        private final byte[] iv;
+
+        CtrTask(ByteBuffer input, int inputBase, ByteBuffer output, int outputBase, byte[] iv, int from, int to) {
+            super(from, to);
+            this.input = input;
+            this.inputBase = inputBase;
+            this.output = output;
+            this.outputBase = outputBase;
+            this.iv = iv;
+        }
+
+        @Override
+        RangeTask subrange(int from, int to) {
+            return new CtrTask(input, inputBase, output, outputBase, iv, from, to);
+        }
+
+        @Override
+        void process() {
+            byte[] counter = new byte[BLOCK_SIZE];
+            byte[] counters = new byte[BATCH_BYTES];
+            byte[] keystream = new byte[BATCH_BYTES];
+            byte[] block = new byte[BATCH_BYTES];
+            addCounter(iv, from / BLOCK_SIZE, counter);
+            for (int i = from; i < to; i += BATCH_BYTES) {
+                int n = Math.min(BATCH_BYTES, to - i);
+                int blocks = (n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+                for (int b = 0; b < blocks; b++) {
+                    System.arraycopy(counter, 0, counters, b * BLOCK_SIZE, BLOCK_SIZE);
+                    incrementCounter(counter);
+                }
+                encryptECB(counters, 0, keystream, 0, blocks);
+                input.get(inputBase + i, block, 0, n);
+                for (int j = 0; j < n; j++) {
+                    block[j] ^= keystream[j];
+                }
+                output.put(outputBase + i, block, 0, n);
             }
-            System.out.println();
         }
-        System.out.println();
     }
 
-    private void printKeySchedule() {
-        System.out.println("Key Schedule:");
-        for (int i = 0; i < keySchedule.length; i++) {
-            System.out.print("w[" + i + "]: ");
-            for (int j = 0; j < 4; j++) {
-                System.out.print(String.format("%02x ", keySchedule[i][j]));
+    // ECB/CBC block decryption; in CBC mode the chaining value is the ciphertext block just before offset + i
+    @SuppressWarnings("serial")
+    private final class DecryptTask extends RangeTask {
+        private final byte[] input;
+        private final int offset;
+        private final byte[] output;
+        private final boolean cbcMode;
+
+        DecryptTask(byte[] input, int offset, byte[] output, boolean cbcMode, int from, int to) {
+            super(from, to);
+            this.input = input;
+            this.offset = offset;
+            this.output = output;
+            this.cbcMode = cbcMode;
+        }
+
+        @Override
+        RangeTask subrange(int from, int to) {
+            return new DecryptTask(input, offset, output, cbcMode, from, to);
+        }
+
+        @Override
+        void process() {
+            decryptECB(input, offset + from, output, from, (to - from) / BLOCK_SIZE);
+            if (cbcMode) {
+                for (int i = from; i < to; i += BLOCK_SIZE) {
+                    xorInto(output, i, input, offset + i - BLOCK_SIZE);
+                }
             }
-            System.out.println();
         }
-        System.out.println();
     }
 
     public static void main(String[] args) {
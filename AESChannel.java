@@ -0,0 +1,47 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * <h1>AESChannel</h1>
+ * <p>A {@link WritableByteChannel} that encrypts everything written to it with AES in ECB or CBC mode before
+ * passing it to the wrapped channel.  Buffering, chaining and padding behave exactly like
+ * {@link AESOutputStream}: bytes are copied out of the source buffer (heap or direct) into one fixed-size
+ * buffer, and the final padded block is written on {@link #close()}.</p>
+ */
+public class AESChannel implements WritableByteChannel {
+    private final AESOutputStream stream;
+    private boolean open = true;
+
+    /**
+     * @param channel The channel receiving the ciphertext
+     * @param aes The cipher to encrypt with
+     * @param iv The 16-byte CBC IV, or null for ECB mode
+     */
+    public AESChannel(WritableByteChannel channel, AES aes, byte[] iv) {
+        this.stream = new AESOutputStream(Channels.newOutputStream(channel), aes, iv);
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        return stream.write(src);
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (open) {
+            open = false;
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+import java.util.Arrays;
+
+/**
+ * <h1>AESEngine</h1>
+ * <p>Word-oriented AES-128 block core.  The state is kept in four big-endian column words and each
+ * round is computed with the combined SubBytes/ShiftRows/MixColumns T-tables.  Decryption uses the
+ * equivalent inverse cipher, so the decryption round keys are run through InvMixColumns once here
+ * instead of once per block.</p>
+ */
+final class AESEngine implements BulkEngine {
+    static final int BLOCK_SIZE = 16;
+    static final int Nb = 4;
+    static final int Nk = 4;
+    static final int Nr = 10;
+
+    private static final int[] RCON = {0x01, 0x02, 0x04, 0x08, 0x10, 0x20, 0x40, 0x80, 0x1B, 0x36};
+
+    static final int[] SB = new int[256];
+    static final int[] ISB = new int[256];
+    static final int[] TE0 = new int[256];
+    static final int[] TE1 = new int[256];
+    static final int[] TE2 = new int[256];
+    static final int[] TE3 = new int[256];
+    static final int[] TD0 = new int[256];
+    static final int[] TD1 = new int[256];
+    static final int[] TD2 = new int[256];
+    static final int[] TD3 = new int[256];
+
+    static {
+        for (int x = 0; x < 256; x++) {
+            int s = SBox.sbox(x);
+            SB[x] = s;
+            int te = (MixCols.mul2(s) << 24) | (s << 16) | (s << 8) | MixCols.mul3(s);
+            TE0[x] = te;
+            TE1[x] = Integer.rotateRight(te, 8);
+            TE2[x] = Integer.rotateRight(te, 16);
+            TE3[x] = Integer.rotateRight(te, 24);
+
+            int i = SBox.invSbox(x);
+            ISB[x] = i;
+            int td = (MixCols.mul14(i) << 24) | (MixCols.mul9(i) << 16) | (MixCols.mul13(i) << 8) | MixCols.mul11(i);
+            TD0[x] = td;
+            TD1[x] = Integer.rotateRight(td, 8);
+            TD2[x] = Integer.rotateRight(td, 16);
+            TD3[x] = Integer.rotateRight(td, 24);
+        }
+    }
+
+    private final int[] encKey = new int[Nb * (Nr + 1)];
+    private final int[] decKey = new int[Nb * (Nr + 1)];
+
+    AESEngine(byte[] key) {
+        if (key.length != Nk * 4) {
+            throw new IllegalArgumentException("Key must be 16 bytes long");
+        }
+        for (int i = 0; i < Nk; i++) {
+            encKey[i] = getWord(key, 4 * i);
+        }
+        for (int i = Nk; i < encKey.length; i++) {
+            int temp = encKey[i - 1];
+            if (i % Nk == 0) {
+                temp = subWord(Integer.rotateLeft(temp, 8)) ^ (RCON[i / Nk - 1] << 24);
+            }
+            encKey[i] = encKey[i - Nk] ^ temp;
+        }
+
+        // Equivalent inverse cipher: reverse the round order and apply InvMixColumns to the inner round keys
+        for (int round = 0; round <= Nr; round++) {
+            for (int c = 0; c < Nb; c++) {
+                int w = encKey[(Nr - round) * Nb + c];
+                if (round > 0 && round < Nr) {
+                    w = MixCols.invMixColumn(w);
+                }
+                decKey[round * Nb + c] = w;
+            }
+        }
+    }
+
+    // Copies another engine's expanded schedules instead of expanding the key again
+    AESEngine(AESEngine source) {
+        System.arraycopy(source.encKey, 0, encKey, 0, encKey.length);
+        System.arraycopy(source.decKey, 0, decKey, 0, decKey.length);
+    }
+
+    /**
+     * <h3>destroy</h3>
+     * <p>Zeroizes both key schedules.  The engine must not be used afterwards.</p>
+     */
+    void destroy() {
+        Arrays.fill(encKey, 0);
+        Arrays.fill(decKey, 0);
+    }
+
+    /**
+     * <h3>keyWord</h3>
+     * <p>Returns word i of the (forward) expanded key schedule, w[i] in FIPS-197 terms.</p>
+     */
+    int keyWord(int i) {
+        return encKey[i];
+    }
+
+    int keyWords() {
+        return encKey.length;
+    }
+
+    void encryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
+        int[] rk = encKey;
+        int s0 = getWord(in, inOff) ^ rk[0];
+        int s1 = getWord(in, inOff + 4) ^ rk[1];
+        int s2 = getWord(in, inOff + 8) ^ rk[2];
+        int s3 = getWord(in, inOff + 12) ^ rk[3];
+
+        int k = 4;
+        for (int round = 1; round < Nr; round++) {
+            int t0 = TE0[s0 >>> 24] ^ TE1[(s1 >>> 16) & 0xFF] ^ TE2[(s2 >>> 8) & 0xFF] ^ TE3[s3 & 0xFF] ^ rk[k];
+            int t1 = TE0[s1 >>> 24] ^ TE1[(s2 >>> 16) & 0xFF] ^ TE2[(s3 >>> 8) & 0xFF] ^ TE3[s0 & 0xFF] ^ rk[k + 1];
+            int t2 = TE0[s2 >>> 24] ^ TE1[(s3 >>> 16) & 0xFF] ^ TE2[(s0 >>> 8) & 0xFF] ^ TE3[s1 & 0xFF] ^ rk[k + 2];
+            int t3 = TE0[s3 >>> 24] ^ TE1[(s0 >>> 16) & 0xFF] ^ TE2[(s1 >>> 8) & 0xFF] ^ TE3[s2 & 0xFF] ^ rk[k + 3];
+            s0 = t0;
+            s1 = t1;
+            s2 = t2;
+            s3 = t3;
+            k += 4;
+        }
+
+        putWord(out, outOff, finalRound(SB, s0, s1, s2, s3) ^ rk[k]);
+        putWord(out, outOff + 4, finalRound(SB, s1, s2, s3, s0) ^ rk[k + 1]);
+        putWord(out, outOff + 8, finalRound(SB, s2, s3, s0, s1) ^ rk[k + 2]);
+        putWord(out, outOff + 12, finalRound(SB, s3, s0, s1, s2) ^ rk[k + 3]);
+    }
+
+    void decryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
+        int[] rk = decKey;
+        int s0 = getWord(in, inOff) ^ rk[0];
+        int s1 = getWord(in, inOff + 4) ^ rk[1];
+        int s2 = getWord(in, inOff + 8) ^ rk[2];
+        int s3 = getWord(in, inOff + 12) ^ rk[3];
+
+        int k = 4;
+        for (int round = 1; round < Nr; round++) {
+            int t0 = TD0[s0 >>> 24] ^ TD1[(s3 >>> 16) & 0xFF] ^ TD2[(s2 >>> 8) & 0xFF] ^ TD3[s1 & 0xFF] ^ rk[k];
+            int t1 = TD0[s1 >>> 24] ^ TD1[(s0 >>> 16) & 0xFF] ^ TD2[(s3 >>> 8) & 0xFF] ^ TD3[s2 & 0xFF] ^ rk[k + 1];
+            int t2 = TD0[s2 >>> 24] ^ TD1[(s1 >>> 16) & 0xFF] ^ TD2[(s0 >>> 8) & 0xFF] ^ TD3[s3 & 0xFF] ^ rk[k + 2];
+            int t3 = TD0[s3 >>> 24] ^ TD1[(s2 >>> 16) & 0xFF] ^ TD2[(s1 >>> 8) & 0xFF] ^ TD3[s0 & 0xFF] ^ rk[k + 3];
+            s0 = t0;
+            s1 = t1;
+            s2 = t2;
+            s3 = t3;
+            k += 4;
+        }
+
+        putWord(out, outOff, finalRound(ISB, s0, s3, s2, s1) ^ rk[k]);
+        putWord(out, outOff + 4, finalRound(ISB, s1, s0, s3, s2) ^ rk[k + 1]);
+        putWord(out, outOff + 8, finalRound(ISB, s2, s1, s0, s3) ^ rk[k + 2]);
+        putWord(out, outOff + 12, finalRound(ISB, s3, s2, s1, s0) ^ rk[k + 3]);
+    }
+
+    @Override
+    public void encryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int blocks) {
+        for (int i = 0; i < blocks * BLOCK_SIZE; i += BLOCK_SIZE) {
+            encryptBlock(in, inOff + i, out, outOff + i);
+        }
+    }
+
+    @Override
+    public void decryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int blocks) {
+        for (int i = 0; i < blocks * BLOCK_SIZE; i += BLOCK_SIZE) {
+            decryptBlock(in, inOff + i, out, outOff + i);
+        }
+    }
+
+    private static int finalRound(int[] box, int a, int b, int c, int d) {
+        return (box[a >>> 24] << 24) | (box[(b >>> 16) & 0xFF] << 16) | (box[(c >>> 8) & 0xFF] << 8) | box[d & 0xFF];
+    }
+
+    private static int subWord(int w) {
+        return (SB[w >>> 24] << 24) | (SB[(w >>> 16) & 0xFF] << 16) | (SB[(w >>> 8) & 0xFF] << 8) | SB[w & 0xFF];
+    }
+
+    static int getWord(byte[] b, int off) {
+        return (b[off] << 24) | ((b[off + 1] & 0xFF) << 16) | ((b[off + 2] & 0xFF) << 8) | (b[off + 3] & 0xFF);
+    }
+
+    static void putWord(byte[] b, int off, int w) {
+        b[off] = (byte) (w >>> 24);
+        b[off + 1] = (byte) (w >>> 16);
+        b[off + 2] = (byte) (w >>> 8);
+        b[off + 3] = (byte) w;
+    }
+
+    // Big-endian 64-bit access, shared by the bitsliced engine and GCM
+    static long getLong(byte[] b, int off) {
+        return ((long) getWord(b, off) << 32) | (getWord(b, off + 4) & 0xFFFFFFFFL);
+    }
+
+    static void putLong(byte[] b, int off, long v) {
+        putWord(b, off, (int) (v >>> 32));
+        putWord(b, off + 4, (int) v);
+    }
+}
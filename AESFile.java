@@ -0,0 +1,124 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * <h1>AESFile</h1>
+ * <p>Encrypts and decrypts whole files with AES in CTR mode through memory-mapped regions.  The input and
+ * output files are mapped one region at a time and each region is split across a fork-join pool, so files
+ * larger than the heap (or RAM) stream through without being copied onto the heap.</p>
+ * <p>The output file is a 16-byte random initial counter block followed by the ciphertext, which has the same
+ * length as the plaintext.</p>
+ */
+public class AESFile {
+    private static final int BLOCK_SIZE = AESEngine.BLOCK_SIZE;
+    private static final long REGION_SIZE = 256L * 1024 * 1024; // Bytes mapped at a time, a multiple of 16
+
+    /**
+     * <h3>encrypt</h3>
+     * <p>Encrypts the input file into the output file, replacing the output if it exists.  The output is
+     * written to a temporary file beside it and moved into place at the end, so the input and output may be
+     * the same file and a failed run leaves any existing output untouched.</p>
+     * @return The number of plaintext bytes encrypted
+     */
+    public static long encrypt(Path input, Path output, AES aes, ForkJoinPool pool) throws IOException {
+        byte[] iv = new byte[BLOCK_SIZE];
+        new SecureRandom().nextBytes(iv);
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ)) {
+            return replace(output, out -> {
+                ByteBuffer header = ByteBuffer.wrap(iv);
+                while (header.hasRemaining()) {
+                    out.write(header, header.position());
+                }
+                long length = in.size();
+                transform(in, 0, out, BLOCK_SIZE, length, aes, iv, pool);
+                return length;
+            });
+        }
+    }
+
+    /**
+     * <h3>decrypt</h3>
+     * <p>Decrypts a file written by {@link #encrypt(Path, Path, AES, ForkJoinPool)} into the output file,
+     * replacing it in the same way.</p>
+     * @return The number of plaintext bytes recovered
+     */
+    public static long decrypt(Path input, Path output, AES aes, ForkJoinPool pool) throws IOException {
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ)) {
+            if (in.size() < BLOCK_SIZE) {
+                throw new IOException("Missing IV header");
+            }
+            ByteBuffer header = ByteBuffer.allocate(BLOCK_SIZE);
+            while (header.hasRemaining()) {
+                if (in.read(header, header.position()) < 0) {
+                    throw new IOException("Missing IV header");
+                }
+            }
+            long length = in.size() - BLOCK_SIZE;
+            return replace(output, out -> {
+                transform(in, BLOCK_SIZE, out, 0, length, aes, header.array(), pool);
+                return length;
+            });
+        }
+    }
+
+    // Runs writer on a new temporary file beside output, then moves it over output
+    private static long replace(Path output, Writer writer) throws IOException {
+        Path target = output.toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            long length;
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                length = writer.write(out);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return length;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private interface Writer {
+        long write(FileChannel out) throws IOException;
+    }
+
+    // Applies the CTR keystream to length bytes, one mapped region at a time
+    private static void transform(FileChannel in, long inOffset, FileChannel out, long outOffset, long length,
+                                  AES aes, byte[] iv, ForkJoinPool pool) throws IOException {
+        byte[] regionIv = new byte[BLOCK_SIZE];
+        for (long pos = 0; pos < length; pos += REGION_SIZE) {
+            long size = Math.min(REGION_SIZE, length - pos);
+            MappedByteBuffer src = in.map(FileChannel.MapMode.READ_ONLY, inOffset + pos, size);
+            MappedByteBuffer dst = out.map(FileChannel.MapMode.READ_WRITE, outOffset + pos, size);
+            AES.addCounter(iv, pos / BLOCK_SIZE, regionIv);
+            aes.encryptCTR(src, dst, regionIv, pool);
+            dst.force();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4 || !(args[0].equals("encrypt") || args[0].equals("decrypt"))) {
+            System.out.println("Usage: java AESFile encrypt|decrypt <16-byte key> <input file> <output file>");
+            return;
+        }
+        AES aes = new AES(args[1], false);
+        Path input = Paths.get(args[2]);
+        Path output = Paths.get(args[3]);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        long start = System.nanoTime();
+        long bytes = args[0].equals("encrypt") ? encrypt(input, output, aes, pool) : decrypt(input, output, aes, pool);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%s %d bytes in %.3f s (%.1f MB/s, %d threads)%n",
+                args[0].equals("encrypt") ? "Encrypted" : "Decrypted", bytes, seconds,
+                bytes / 1e6 / Math.max(seconds, 1e-9), pool.getParallelism());
+    }
+}
@@ -0,0 +1,150 @@
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * <h1>AESInputStream</h1>
+ * <p>Reads AES ciphertext (ECB or CBC, PKCS#7 padded) from the wrapped stream and returns the plaintext.  The
+ * ciphertext is decrypted a fixed-size buffer at a time; the last block is held back until the end of the
+ * wrapped stream is reached so its padding can be checked and removed.</p>
+ */
+public class AESInputStream extends FilterInputStream {
+    private static final int BLOCK_SIZE = AESEngine.BLOCK_SIZE;
+
+    private final AES aes;
+    private final byte[] chain; // Last ciphertext block in CBC mode, null in ECB mode
+    private final byte[] buffer = new byte[AESOutputStream.BUFFER_SIZE];
+    private int pos; // Next plaintext byte to return
+    private int end; // End of the decrypted plaintext, start of ciphertext not yet decrypted
+    private int filled; // End of the ciphertext read so far
+    private boolean eof;
+    private boolean closed;
+
+    /**
+     * @param in The stream supplying the ciphertext
+     * @param aes The cipher to decrypt with
+     * @param iv The 16-byte CBC IV, or null for ECB mode
+     */
+    public AESInputStream(InputStream in, AES aes, byte[] iv) {
+        super(in);
+        if (iv != null && iv.length != BLOCK_SIZE) {
+            throw new IllegalArgumentException("IV must be 16 bytes long");
+        }
+        this.aes = aes;
+        this.chain = iv != null ? iv.clone() : null;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return buffer[pos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, end - pos);
+        System.arraycopy(buffer, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && fill()) {
+            int step = (int) Math.min(n - skipped, end - pos);
+            pos += step;
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        ensureOpen();
+        return end - pos;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            in.close();
+        }
+    }
+
+    // Makes sure decrypted bytes are available; returns false at the end of the plaintext
+    private boolean fill() throws IOException {
+        ensureOpen();
+        while (pos == end) {
+            if (eof) {
+                return false;
+            }
+            System.arraycopy(buffer, end, buffer, 0, filled - end);
+            filled -= end;
+            pos = 0;
+            end = 0;
+
+            int n = in.read(buffer, filled, buffer.length - filled);
+            if (n < 0) {
+                eof = true;
+                finish();
+            } else {
+                filled += n;
+                // Decrypt every complete block except the last, which may carry the padding
+                int release = filled - filled % BLOCK_SIZE - BLOCK_SIZE;
+                if (release > 0) {
+                    aes.decryptBlocks(buffer, 0, release, chain);
+                    end = release;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void finish() throws IOException {
+        if (filled == 0 || filled % BLOCK_SIZE != 0) {
+            throw new IOException("Invalid ciphertext length");
+        }
+        aes.decryptBlocks(buffer, 0, filled, chain);
+        int paddingLength = buffer[filled - 1] & 0xFF;
+        if (paddingLength < 1 || paddingLength > BLOCK_SIZE) {
+            throw new IOException("Invalid padding");
+        }
+        for (int i = filled - paddingLength; i < filled; i++) {
+            if ((buffer[i] & 0xFF) != paddingLength) {
+                throw new IOException("Invalid padding bytes");
+            }
+        }
+        end = filled - paddingLength;
+        filled = end;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
@@ -0,0 +1,140 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <h1>AESKeyCache</h1>
+ * <p>A thread-safe, size-bounded LRU cache of expanded AES key schedules (encryption and equivalent inverse
+ * decryption), keyed by the raw key bytes.  Every lookup hands out a private copy of the cached schedules, so
+ * when an entry is evicted its key and schedules can be zeroized without affecting {@link AES} instances that
+ * are still using the key.</p>
+ */
+public class AESKeyCache {
+    private static final AESKeyCache SHARED = new AESKeyCache(4096);
+
+    private final int capacity;
+    private final LinkedHashMap<Key, AESEngine> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * <h3>AESKeyCache Constructor</h3>
+     * @param capacity The maximum number of key schedules to keep
+     */
+    public AESKeyCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, AESEngine> eldest) {
+                if (size() > AESKeyCache.this.capacity) {
+                    evict(eldest);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * <h3>shared</h3>
+     * @return A process-wide cache holding up to 4096 key schedules
+     */
+    public static AESKeyCache shared() {
+        return SHARED;
+    }
+
+    // Returns a private copy of the schedules for key, expanding and caching them on a miss
+    AESEngine lookup(byte[] key) {
+        Key k = new Key(key);
+        synchronized (this) {
+            AESEngine cached = entries.get(k);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return new AESEngine(cached);
+            }
+        }
+        misses.incrementAndGet();
+        AESEngine expanded = new AESEngine(key); // Expand outside the lock
+        synchronized (this) {
+            if (!entries.containsKey(k)) {
+                entries.put(new Key(key), new AESEngine(expanded));
+            }
+        }
+        return expanded;
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public long evictions() {
+        return evictions.get();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * <h3>clear</h3>
+     * <p>Zeroizes and removes every cached key and schedule.</p>
+     */
+    public synchronized void clear() {
+        Iterator<Map.Entry<Key, AESEngine>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            evict(it.next());
+            it.remove();
+        }
+    }
+
+    private void evict(Map.Entry<Key, AESEngine> entry) {
+        entry.getValue().destroy();
+        entry.getKey().destroy();
+        evictions.incrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AESKeyCache[size=%d, capacity=%d, hits=%d, misses=%d, evictions=%d]",
+                size(), capacity, hits(), misses(), evictions());
+    }
+
+    // Key bytes with content equality; the copy stored in the map is zeroized on eviction
+    private static final class Key {
+        private final byte[] bytes;
+        private final int hash;
+
+        Key(byte[] bytes) {
+            this.bytes = bytes.clone();
+            this.hash = Arrays.hashCode(bytes);
+        }
+
+        void destroy() {
+            Arrays.fill(bytes, (byte) 0);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(bytes, ((Key) o).bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * <h1>AESOutputStream</h1>
+ * <p>Encrypts everything written to it with AES in ECB or CBC mode and writes the ciphertext to the wrapped
+ * stream.  Plaintext is collected in a fixed-size buffer and encrypted a buffer at a time; the CBC chaining
+ * value carries over between writes and the PKCS#7 padding is only added by {@link #close()}.  The IV is
+ * managed by the caller and is not written to the stream.</p>
+ */
+public class AESOutputStream extends FilterOutputStream {
+    static final int BUFFER_SIZE = 8192;
+    private static final int BLOCK_SIZE = AESEngine.BLOCK_SIZE;
+
+    private final AES aes;
+    private final byte[] chain; // Last ciphertext block in CBC mode, null in ECB mode
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int count;
+    private boolean closed;
+
+    /**
+     * @param out The stream receiving the ciphertext
+     * @param aes The cipher to encrypt with
+     * @param iv The 16-byte CBC IV, or null for ECB mode
+     */
+    public AESOutputStream(OutputStream out, AES aes, byte[] iv) {
+        super(out);
+        if (iv != null && iv.length != BLOCK_SIZE) {
+            throw new IllegalArgumentException("IV must be 16 bytes long");
+        }
+        this.aes = aes;
+        this.chain = iv != null ? iv.clone() : null;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        buffer[count++] = (byte) b;
+        if (count == BUFFER_SIZE) {
+            writeBlocks();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int n = Math.min(len, BUFFER_SIZE - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            if (count == BUFFER_SIZE) {
+                writeBlocks();
+            }
+        }
+    }
+
+    // Used by AESChannel to copy straight out of heap or direct buffers
+    int write(ByteBuffer src) throws IOException {
+        ensureOpen();
+        int written = src.remaining();
+        while (src.hasRemaining()) {
+            int n = Math.min(src.remaining(), BUFFER_SIZE - count);
+            src.get(buffer, count, n);
+            count += n;
+            if (count == BUFFER_SIZE) {
+                writeBlocks();
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Encrypts and writes every complete block buffered so far, then flushes the wrapped stream.  A trailing
+     * partial block stays buffered until more data or {@link #close()} arrives.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        writeBlocks();
+        out.flush();
+    }
+
+    /**
+     * Pads and encrypts the final block, writes it and closes the wrapped stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            // count is always below BUFFER_SIZE here, so the padding fits in the buffer
+            int paddingLength = BLOCK_SIZE - count % BLOCK_SIZE;
+            for (int i = 0; i < paddingLength; i++) {
+                buffer[count++] = (byte) paddingLength;
+            }
+            aes.encryptBlocks(buffer, 0, count, chain);
+            out.write(buffer, 0, count);
+            count = 0;
+            out.flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeBlocks() throws IOException {
+        int whole = count - count % BLOCK_SIZE;
+        if (whole == 0) {
+            return;
+        }
+        aes.encryptBlocks(buffer, 0, whole, chain);
+        out.write(buffer, 0, whole);
+        System.arraycopy(buffer, whole, buffer, 0, count - whole);
+        count -= whole;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
@@ -0,0 +1,96 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * <h1>BinaryRoundTracer</h1>
+ * <p>Captures the trace in memory in a compact binary form.  Each step is recorded as one code byte, one round
+ * byte and the 16-byte output state.  The input state is only stored when it differs from the previous output
+ * (at the start of every block), and round keys are not stored at all since they can be taken from the
+ * recorded key schedule.</p>
+ * <p>Record layout:</p>
+ * <ul>
+ *     <li>Key schedule: 'K', then 44 big-endian words</li>
+ *     <li>Message: 'M', then label and value, each as a 2-byte length and UTF-8 bytes</li>
+ *     <li>Step: the step ordinal, with 0x40 set when a 16-byte input state follows, then the round byte, the
+ *     optional input state and the output state</li>
+ * </ul>
+ */
+public class BinaryRoundTracer implements RoundTracer {
+    static final int RECORD_KEY_SCHEDULE = 'K';
+    static final int RECORD_MESSAGE = 'M';
+    static final int FLAG_INPUT = 0x40;
+
+    private byte[] data = new byte[4096];
+    private int size;
+    private final byte[] lastOutput = new byte[AESEngine.BLOCK_SIZE];
+    private boolean hasOutput;
+
+    @Override
+    public synchronized void step(Step step, int round, byte[] input, byte[] roundKey, byte[] output) {
+        boolean withInput = !hasOutput || !Arrays.equals(input, lastOutput);
+        ensureCapacity(2 + (withInput ? 32 : 16));
+        data[size++] = (byte) (step.ordinal() | (withInput ? FLAG_INPUT : 0));
+        data[size++] = (byte) round;
+        if (withInput) {
+            System.arraycopy(input, 0, data, size, 16);
+            size += 16;
+        }
+        System.arraycopy(output, 0, data, size, 16);
+        size += 16;
+        System.arraycopy(output, 0, lastOutput, 0, 16);
+        hasOutput = true;
+    }
+
+    @Override
+    public synchronized void keySchedule(int[] words) {
+        ensureCapacity(1 + 4 * words.length);
+        data[size++] = RECORD_KEY_SCHEDULE;
+        for (int word : words) {
+            AESEngine.putWord(data, size, word);
+            size += 4;
+        }
+    }
+
+    @Override
+    public synchronized void message(String label, String value) {
+        byte[] l = label.getBytes(StandardCharsets.UTF_8);
+        byte[] v = value.getBytes(StandardCharsets.UTF_8);
+        ensureCapacity(5 + l.length + v.length);
+        data[size++] = RECORD_MESSAGE;
+        putBytes(l);
+        putBytes(v);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized byte[] toByteArray() {
+        return Arrays.copyOf(data, size);
+    }
+
+    public synchronized void writeTo(OutputStream out) throws IOException {
+        out.write(data, 0, size);
+    }
+
+    public synchronized void reset() {
+        size = 0;
+        hasOutput = false;
+    }
+
+    private void putBytes(byte[] b) {
+        int length = Math.min(b.length, 0xFFFF);
+        data[size++] = (byte) (length >>> 8);
+        data[size++] = (byte) length;
+        System.arraycopy(b, 0, data, size, length);
+        size += length;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, size + extra));
+        }
+    }
+}
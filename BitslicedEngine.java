@@ -0,0 +1,385 @@
+/**
+ * <h1>BitslicedEngine</h1>
+ * <p>Constant-time AES-128 core that processes 64 independent blocks at once.  A batch is transposed so that
+ * long k holds bit k of every block, one block per bit position.  SubBytes is then a fixed boolean circuit,
+ * ShiftRows is a choice of indexes and MixColumns is a few XORs per bit, so no table lookup or branch ever
+ * depends on key or data.</p>
+ * <p>Short batches are padded with zero blocks, so throughput is best when calls cover many blocks at a time,
+ * as the ECB, CTR and parallel CBC decryption paths of {@link AES} do.</p>
+ */
+final class BitslicedEngine implements BulkEngine {
+    static final int BATCH = 64; // Blocks per bitsliced batch, one per bit of a long
+    private static final int BLOCK_SIZE = AESEngine.BLOCK_SIZE;
+    private static final int Nb = AESEngine.Nb;
+    private static final int Nr = AESEngine.Nr;
+    private static final int SLICES = 128;
+
+    // Slice holding bit 0 of state byte b, with bits 1 to 7 in the slices after it
+    private static final int[] BASE = new int[BLOCK_SIZE];
+    // State byte that ShiftRows moves into byte b
+    private static final int[] SHIFT = new int[BLOCK_SIZE];
+
+    static {
+        for (int b = 0; b < BLOCK_SIZE; b++) {
+            BASE[b] = b < 8 ? 56 - 8 * b : 184 - 8 * b;
+            int r = b % 4;
+            int c = b / 4;
+            SHIFT[b] = 4 * ((c + r) % 4) + r;
+        }
+    }
+
+    // Round keys as all-zero or all-one masks, one per slice
+    private final long[] roundKeys = new long[(Nr + 1) * SLICES];
+
+    BitslicedEngine(AESEngine engine) {
+        for (int round = 0; round <= Nr; round++) {
+            for (int b = 0; b < BLOCK_SIZE; b++) {
+                int value = (engine.keyWord(round * Nb + b / 4) >>> (24 - 8 * (b % 4))) & 0xFF;
+                for (int i = 0; i < 8; i++) {
+                    roundKeys[round * SLICES + BASE[b] + i] = -(long) ((value >>> i) & 1);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void encryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int blocks) {
+        long[] s = new long[SLICES];
+        long[] t = new long[SLICES];
+        for (int done = 0; done < blocks; done += BATCH) {
+            int n = Math.min(BATCH, blocks - done);
+            load(in, inOff + done * BLOCK_SIZE, n, s);
+            addRoundKey(s, s, 0);
+            for (int round = 1; round < Nr; round++) {
+                subBytes(s);
+                for (int b = 0; b < BLOCK_SIZE; b += 4) {
+                    mixColumn(s, SHIFT[b], SHIFT[b + 1], SHIFT[b + 2], SHIFT[b + 3], t, b, b + 1, b + 2, b + 3);
+                }
+                addRoundKey(t, s, round);
+            }
+            subBytes(s);
+            for (int b = 0; b < BLOCK_SIZE; b++) {
+                System.arraycopy(s, BASE[SHIFT[b]], t, BASE[b], 8);
+            }
+            addRoundKey(t, s, Nr);
+            store(s, out, outOff + done * BLOCK_SIZE, n);
+        }
+    }
+
+    @Override
+    public void decryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int blocks) {
+        long[] s = new long[SLICES];
+        long[] t = new long[SLICES];
+        for (int done = 0; done < blocks; done += BATCH) {
+            int n = Math.min(BATCH, blocks - done);
+            load(in, inOff + done * BLOCK_SIZE, n, s);
+            addRoundKey(s, s, Nr);
+            for (int b = 0; b < BLOCK_SIZE; b++) {
+                System.arraycopy(s, BASE[b], t, BASE[SHIFT[b]], 8);
+            }
+            long[] state = t;
+            long[] next = s;
+            for (int round = Nr - 1; round > 0; round--) {
+                invSubBytes(state);
+                addRoundKey(state, state, round);
+                // InvMixColumns, writing each result where InvShiftRows would move it
+                for (int b = 0; b < BLOCK_SIZE; b += 4) {
+                    invMixColumn(state, b, b + 1, b + 2, b + 3, next, SHIFT[b], SHIFT[b + 1], SHIFT[b + 2], SHIFT[b + 3]);
+                }
+                long[] swap = state;
+                state = next;
+                next = swap;
+            }
+            invSubBytes(state);
+            addRoundKey(state, s, 0);
+            store(s, out, outOff + done * BLOCK_SIZE, n);
+        }
+    }
+
+    private void addRoundKey(long[] src, long[] dst, int round) {
+        int k = round * SLICES;
+        for (int i = 0; i < SLICES; i++) {
+            dst[i] = src[i] ^ roundKeys[k + i];
+        }
+    }
+
+    // Transposes n blocks (and 64 - n zero blocks) into bit slices
+    private static void load(byte[] in, int off, int n, long[] s) {
+        for (int j = 0; j < BATCH; j++) {
+            if (j < n) {
+                int p = off + j * BLOCK_SIZE;
+                s[j] = AESEngine.getLong(in, p);
+                s[BATCH + j] = AESEngine.getLong(in, p + 8);
+            } else {
+                s[j] = 0;
+                s[BATCH + j] = 0;
+            }
+        }
+        transpose(s, 0);
+        transpose(s, BATCH);
+    }
+
+    private static void store(long[] s, byte[] out, int off, int n) {
+        transpose(s, 0);
+        transpose(s, BATCH);
+        for (int j = 0; j < n; j++) {
+            int p = off + j * BLOCK_SIZE;
+            AESEngine.putLong(out, p, s[j]);
+            AESEngine.putLong(out, p + 8, s[BATCH + j]);
+        }
+    }
+
+    // In-place 64x64 bit-matrix transpose: bit c of a[off + r] swaps with bit r of a[off + c]
+    private static void transpose(long[] a, int off) {
+        long m = 0x00000000FFFFFFFFL;
+        for (int j = 32; j != 0; j >>>= 1, m ^= m << j) {
+            for (int k = 0; k < 64; k = ((k | j) + 1) & ~j) {
+                long t = ((a[off + k] >>> j) ^ a[off + (k | j)]) & m;
+                a[off + k] ^= t << j;
+                a[off + (k | j)] ^= t;
+            }
+        }
+    }
+
+    /*
+     * One output column of MixColumns: out_r = 2(a_r ^ a_(r+1)) ^ a_(r+1) ^ a_(r+2) ^ a_(r+3).  Inputs and
+     * outputs are state byte indexes, so ShiftRows can be folded into either side.
+     */
+    private static void mixColumn(long[] src, int a0, int a1, int a2, int a3, long[] dst, int o0, int o1, int o2, int o3) {
+        mixByte(src, BASE[a0], BASE[a1], BASE[a2], BASE[a3], dst, BASE[o0]);
+        mixByte(src, BASE[a1], BASE[a2], BASE[a3], BASE[a0], dst, BASE[o1]);
+        mixByte(src, BASE[a2], BASE[a3], BASE[a0], BASE[a1], dst, BASE[o2]);
+        mixByte(src, BASE[a3], BASE[a0], BASE[a1], BASE[a2], dst, BASE[o3]);
+    }
+
+    private static void mixByte(long[] s, int x, int y, int z, int w, long[] dst, int o) {
+        long d7 = s[x + 7] ^ s[y + 7];
+        dst[o] = d7 ^ s[y] ^ s[z] ^ s[w];
+        dst[o + 1] = s[x] ^ s[y] ^ d7 ^ s[y + 1] ^ s[z + 1] ^ s[w + 1];
+        dst[o + 2] = s[x + 1] ^ s[y + 1] ^ s[y + 2] ^ s[z + 2] ^ s[w + 2];
+        dst[o + 3] = s[x + 2] ^ s[y + 2] ^ d7 ^ s[y + 3] ^ s[z + 3] ^ s[w + 3];
+        dst[o + 4] = s[x + 3] ^ s[y + 3] ^ d7 ^ s[y + 4] ^ s[z + 4] ^ s[w + 4];
+        dst[o + 5] = s[x + 4] ^ s[y + 4] ^ s[y + 5] ^ s[z + 5] ^ s[w + 5];
+        dst[o + 6] = s[x + 5] ^ s[y + 5] ^ s[y + 6] ^ s[z + 6] ^ s[w + 6];
+        dst[o + 7] = s[x + 6] ^ s[y + 6] ^ s[y + 7] ^ s[z + 7] ^ s[w + 7];
+    }
+
+    /*
+     * InvMixColumns as in MixCols.invMixColumn: add 4(a0 ^ a2) to rows 0 and 2 and 4(a1 ^ a3) to rows 1 and 3
+     * of src in place, then apply the forward matrix.
+     */
+    private static void invMixColumn(long[] src, int a0, int a1, int a2, int a3, long[] dst, int o0, int o1, int o2, int o3) {
+        times4(src, BASE[a0], BASE[a2]);
+        times4(src, BASE[a1], BASE[a3]);
+        mixColumn(src, a0, a1, a2, a3, dst, o0, o1, o2, o3);
+    }
+
+    // Adds 4(x ^ y) to both x and y
+    private static void times4(long[] s, int x, int y) {
+        long d0 = s[x] ^ s[y];
+        long d1 = s[x + 1] ^ s[y + 1];
+        long d2 = s[x + 2] ^ s[y + 2];
+        long d3 = s[x + 3] ^ s[y + 3];
+        long d4 = s[x + 4] ^ s[y + 4];
+        long d5 = s[x + 5] ^ s[y + 5];
+        long d6 = s[x + 6] ^ s[y + 6];
+        long d7 = s[x + 7] ^ s[y + 7];
+        long f0 = d6;
+        long f1 = d6 ^ d7;
+        long f2 = d0 ^ d7;
+        long f3 = d1 ^ d6;
+        long f4 = d2 ^ d6 ^ d7;
+        long f5 = d3 ^ d7;
+        long f6 = d4;
+        long f7 = d5;
+        s[x] ^= f0;
+        s[x + 1] ^= f1;
+        s[x + 2] ^= f2;
+        s[x + 3] ^= f3;
+        s[x + 4] ^= f4;
+        s[x + 5] ^= f5;
+        s[x + 6] ^= f6;
+        s[x + 7] ^= f7;
+        s[y] ^= f0;
+        s[y + 1] ^= f1;
+        s[y + 2] ^= f2;
+        s[y + 3] ^= f3;
+        s[y + 4] ^= f4;
+        s[y + 5] ^= f5;
+        s[y + 6] ^= f6;
+        s[y + 7] ^= f7;
+    }
+
+    private static void subBytes(long[] s) {
+        for (int b = 0; b < BLOCK_SIZE; b++) {
+            sbox(s, BASE[b]);
+        }
+    }
+
+    // InvS(y) = T(S(T(y))), where T is the inverse of the S-box's affine map, so S's circuit serves both ways
+    private static void invSubBytes(long[] s) {
+        for (int b = 0; b < BLOCK_SIZE; b++) {
+            invAffine(s, BASE[b]);
+            sbox(s, BASE[b]);
+            invAffine(s, BASE[b]);
+        }
+    }
+
+    // T(y) = rotl(y, 1) ^ rotl(y, 3) ^ rotl(y, 6) ^ 0x05
+    private static void invAffine(long[] s, int o) {
+        long y0 = s[o], y1 = s[o + 1], y2 = s[o + 2], y3 = s[o + 3];
+        long y4 = s[o + 4], y5 = s[o + 5], y6 = s[o + 6], y7 = s[o + 7];
+        s[o] = ~(y7 ^ y5 ^ y2);
+        s[o + 1] = y0 ^ y6 ^ y3;
+        s[o + 2] = ~(y1 ^ y7 ^ y4);
+        s[o + 3] = y2 ^ y0 ^ y5;
+        s[o + 4] = y3 ^ y1 ^ y6;
+        s[o + 5] = y4 ^ y2 ^ y7;
+        s[o + 6] = y5 ^ y3 ^ y0;
+        s[o + 7] = y6 ^ y4 ^ y1;
+    }
+
+    /*
+     * The AES S-box on the eight slices s[o] (bit 0) to s[o + 7] (bit 7), using the circuit of Boyar and
+     * Peralta (32 ANDs): a linear top layer, a shared GF(2^4) inversion and a linear bottom layer.
+     */
+    private static void sbox(long[] s, int o) {
+        long x0 = s[o + 7];
+        long x1 = s[o + 6];
+        long x2 = s[o + 5];
+        long x3 = s[o + 4];
+        long x4 = s[o + 3];
+        long x5 = s[o + 2];
+        long x6 = s[o + 1];
+        long x7 = s[o];
+
+        long y14 = x3 ^ x5;
+        long y13 = x0 ^ x6;
+        long y9 = x0 ^ x3;
+        long y8 = x0 ^ x5;
+        long t0 = x1 ^ x2;
+        long y1 = t0 ^ x7;
+        long y4 = y1 ^ x3;
+        long y12 = y13 ^ y14;
+        long y2 = y1 ^ x0;
+        long y5 = y1 ^ x6;
+        long y3 = y5 ^ y8;
+        long t1 = x4 ^ y12;
+        long y15 = t1 ^ x5;
+        long y20 = t1 ^ x1;
+        long y6 = y15 ^ x7;
+        long y10 = y15 ^ t0;
+        long y11 = y20 ^ y9;
+        long y7 = x7 ^ y11;
+        long y17 = y10 ^ y11;
+        long y19 = y10 ^ y8;
+        long y16 = t0 ^ y11;
+        long y21 = y13 ^ y16;
+        long y18 = x0 ^ y16;
+
+        long t2 = y12 & y15;
+        long t3 = y3 & y6;
+        long t4 = t3 ^ t2;
+        long t5 = y4 & x7;
+        long t6 = t5 ^ t2;
+        long t7 = y13 & y16;
+        long t8 = y5 & y1;
+        long t9 = t8 ^ t7;
+        long t10 = y2 & y7;
+        long t11 = t10 ^ t7;
+        long t12 = y9 & y11;
+        long t13 = y14 & y17;
+        long t14 = t13 ^ t12;
+        long t15 = y8 & y10;
+        long t16 = t15 ^ t12;
+        long t17 = t4 ^ t14;
+        long t18 = t6 ^ t16;
+        long t19 = t9 ^ t14;
+        long t20 = t11 ^ t16;
+        long t21 = t17 ^ y20;
+        long t22 = t18 ^ y19;
+        long t23 = t19 ^ y21;
+        long t24 = t20 ^ y18;
+
+        long t25 = t21 ^ t22;
+        long t26 = t21 & t23;
+        long t27 = t24 ^ t26;
+        long t28 = t25 & t27;
+        long t29 = t28 ^ t22;
+        long t30 = t23 ^ t24;
+        long t31 = t22 ^ t26;
+        long t32 = t31 & t30;
+        long t33 = t32 ^ t24;
+        long t34 = t23 ^ t33;
+        long t35 = t27 ^ t33;
+        long t36 = t24 & t35;
+        long t37 = t36 ^ t34;
+        long t38 = t27 ^ t36;
+        long t39 = t29 & t38;
+        long t40 = t25 ^ t39;
+
+        long t41 = t40 ^ t37;
+        long t42 = t29 ^ t33;
+        long t43 = t29 ^ t40;
+        long t44 = t33 ^ t37;
+        long t45 = t42 ^ t41;
+        long z0 = t44 & y15;
+        long z1 = t37 & y6;
+        long z2 = t33 & x7;
+        long z3 = t43 & y16;
+        long z4 = t40 & y1;
+        long z5 = t29 & y7;
+        long z6 = t42 & y11;
+        long z7 = t45 & y17;
+        long z8 = t41 & y10;
+        long z9 = t44 & y12;
+        long z10 = t37 & y3;
+        long z11 = t33 & y4;
+        long z12 = t43 & y13;
+        long z13 = t40 & y5;
+        long z14 = t29 & y2;
+        long z15 = t42 & y9;
+        long z16 = t45 & y14;
+        long z17 = t41 & y8;
+
+        long t46 = z15 ^ z16;
+        long t47 = z10 ^ z11;
+        long t48 = z5 ^ z13;
+        long t49 = z9 ^ z10;
+        long t50 = z2 ^ z12;
+        long t51 = z2 ^ z5;
+        long t52 = z7 ^ z8;
+        long t53 = z0 ^ z3;
+        long t54 = z6 ^ z7;
+        long t55 = z16 ^ z17;
+        long t56 = z12 ^ t48;
+        long t57 = t50 ^ t53;
+        long t58 = z4 ^ t46;
+        long t59 = z3 ^ t54;
+        long t60 = t46 ^ t57;
+        long t61 = z14 ^ t57;
+        long t62 = t52 ^ t58;
+        long t63 = t49 ^ t58;
+        long t64 = z4 ^ t59;
+        long t65 = t61 ^ t62;
+        long t66 = z1 ^ t63;
+        long s0 = t59 ^ t63;
+        long s6 = t56 ^ ~t62;
+        long s7 = t48 ^ ~t60;
+        long t67 = t64 ^ t65;
+        long s3 = t53 ^ t66;
+        long s4 = t51 ^ t66;
+        long s5 = t47 ^ t65;
+        long s1 = t64 ^ ~s3;
+        long s2 = t55 ^ ~t67;
+
+        s[o + 7] = s0;
+        s[o + 6] = s1;
+        s[o + 5] = s2;
+        s[o + 4] = s3;
+        s[o + 3] = s4;
+        s[o + 2] = s5;
+        s[o + 1] = s6;
+        s[o] = s7;
+    }
+}
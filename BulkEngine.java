@@ -0,0 +1,32 @@
+/**
+ * <h1>BulkEngine</h1>
+ * <p>An AES-128 core that encrypts or decrypts many independent blocks per call, which is all that ECB, CTR and
+ * CBC decryption need.  The implementation is chosen per key by the {@code aes.engine} system property:
+ * {@code table} (the default) for the T-table {@link AESEngine}, or {@code bitsliced} for the constant-time
+ * {@link BitslicedEngine}.</p>
+ */
+interface BulkEngine {
+    String ENGINE_PROPERTY = "aes.engine";
+
+    /**
+     * Encrypts blocks consecutive 16-byte blocks from in into out.  in and out may be the same range.
+     */
+    void encryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int blocks);
+
+    void decryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int blocks);
+
+    /**
+     * @return The bulk engine selected by the {@code aes.engine} property for the key already expanded in engine
+     */
+    static BulkEngine of(AESEngine engine) {
+        String name = System.getProperty(ENGINE_PROPERTY, "table");
+        switch (name) {
+            case "table":
+                return engine;
+            case "bitsliced":
+                return new BitslicedEngine(engine);
+            default:
+                throw new IllegalStateException("Unknown " + ENGINE_PROPERTY + ": " + name);
+        }
+    }
+}
@@ -1,30 +1,14 @@
-import java.io.File;
-import java.io.FileNotFoundException;
 import java.math.BigInteger;
-import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
 
 public class Crypto {
+    /**
+     * <h3>fastMod</h3>
+     * <p>g<sup>a</sup> mod p through BigInteger.modPow, whose intrinsic-backed Montgomery products beat a
+     * {@link Montgomery} context for any base that is not reused.</p>
+     */
     public static BigInteger fastMod(BigInteger g, BigInteger a, BigInteger p) {
-        int bitWidth = a.bitLength();
-        BigInteger one = new BigInteger("1");
-        BigInteger b = BigInteger.ZERO.add(a);
-        boolean bits[] = new boolean[bitWidth];
-        for (int i = 0; i < bitWidth; i++) {
-            boolean bit = b.and(one).equals(one);
-            bits[bitWidth-i-1] = bit;
-            b.shiftRight(1);
-        }
-
-        BigInteger result = new BigInteger("1");
-        for (int i = 0; i < bitWidth; i++) {
-            result = result.pow(2);
-            result = result.mod(p);
-            if (bits[i]) {
-                result = result.multiply(g);
-                result = result.mod(p);
-            }
-        }
-        return result;
+        return g.modPow(a, p);
     }
 
     public static boolean isValidG(BigInteger g, BigInteger p) {
@@ -61,76 +45,102 @@ public class Crypto {
     }
 
     public static boolean checkPrime(BigInteger p, int numChecks) {
-        boolean isPrime = true;
-        try {
-            Scanner scan = new Scanner(new File("primes.txt"));
-            while (scan.hasNext()) {
-                BigInteger b = new BigInteger(scan.nextLine());
-                if (p.mod(b).equals(BigInteger.ZERO)) {
-                    isPrime = false;
-                    break;
-                }
-            }
-            scan.close();
-        } catch (FileNotFoundException fnfEx) {
-            fnfEx.printStackTrace();
+        if (p.bitLength() <= 18) {
+            return SmallPrimes.isSmallPrime(p);
         }
-        if (!isPrime) {
+        if (SmallPrimes.hasSmallFactor(p, SmallPrimes.trialPrimes(p.bitLength()))) {
             return false;
         }
+        return millerRabin(p, numChecks);
+    }
 
-        BigInteger pm = p.subtract(BigInteger.ONE);
-        for (int i = 0; i < numChecks; i++) {
-            BigInteger a = getRandom(1, p.bitLength() - 1);
-            if (!fastMod(a, pm, p).equals(BigInteger.ONE)) {
-                return false;
-            }
+    /**
+     * <h3>checkSafePrime</h3>
+     * <p>Whether p = 2q + 1 with q prime: trial division of both, a base-2 Fermat test on p and then
+     * numChecks Miller-Rabin rounds on q.  Once q is prime, the Fermat test proves p prime by Pocklington's
+     * criterion, so p needs no rounds of its own.</p>
+     */
+    public static boolean checkSafePrime(BigInteger p, int numChecks) {
+        BigInteger q = p.shiftRight(1);
+        if (p.bitLength() <= 18) {
+            return p.testBit(0) && SmallPrimes.isSmallPrime(p) && SmallPrimes.isSmallPrime(q);
+        }
+        int trial = SmallPrimes.trialPrimes(p.bitLength());
+        if (SmallPrimes.hasSmallFactor(p, trial) || SmallPrimes.hasSmallFactor(q, trial)) {
+            return false;
         }
+        BigInteger pMinusOne = p.subtract(BigInteger.ONE);
+        return BigInteger.TWO.modPow(pMinusOne, p).equals(BigInteger.ONE) && millerRabin(q, numChecks);
+    }
 
-        BigInteger s = BigInteger.ZERO;
-        BigInteger d = pm;
-        while (d.mod(BigInteger.TWO).equals(BigInteger.ZERO)) {
-            s = s.add(BigInteger.ONE);
-            d = d.shiftRight(1);
-        }
+    // numChecks rounds with random bases
+    static boolean millerRabin(BigInteger p, int numChecks) {
+        BigInteger pm = p.subtract(BigInteger.ONE);
+        int s = pm.getLowestSetBit();
+        BigInteger d = pm.shiftRight(s);
         for (int i = 0; i < numChecks; i++) {
             BigInteger a = getRandom(1, p.bitLength() - 1);
-            BigInteger x = fastMod(a, d, p);
-            for (BigInteger j = BigInteger.ZERO; !j.equals(s); j = j.add(BigInteger.ONE)) {
-                x = x.pow(2);
-                BigInteger y = x.mod(p);
-                if (y.equals(BigInteger.ONE) && !x.equals(BigInteger.ONE) && !x.equals(pm)) {
-                    return false;
+            BigInteger x = a.modPow(d, p);
+            if (x.equals(BigInteger.ONE) || x.equals(pm)) {
+                continue;
+            }
+            int j = 1;
+            while (j < s && !x.equals(pm)) {
+                x = x.multiply(x).mod(p);
+                if (x.equals(BigInteger.ONE)) {
+                    return false; // A non-trivial square root of 1
                 }
-                x = y;
+                j++;
             }
-            if (!x.equals(BigInteger.ONE)) {
+            if (!x.equals(pm)) {
                 return false;
             }
         }
-
-        return isPrime;
+        return true;
     }
 
+    /**
+     * <h3>getPrime</h3>
+     * <p>A random probable prime with more than minBits and at most maxBits bits, searched for on the common
+     * fork-join pool.</p>
+     */
     public static BigInteger getPrime(int minBits, int maxBits, int numChecks) {
-        int i = 0;
-        BigInteger p = getRandom(minBits, maxBits);
-        while (!checkPrime(p, numChecks)) {
-            i += 1;
-            p = getRandom(minBits, maxBits);
-        }
-        System.out.printf("Checked %d numbers for primality%n", i);
-        return p;
+        return getPrime(minBits, maxBits, numChecks, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * As {@link #getPrime(int, int, int)}, running Miller-Rabin on the given pool.
+     */
+    public static BigInteger getPrime(int minBits, int maxBits, int numChecks, ForkJoinPool pool) {
+        return PrimeSearch.find(minBits, maxBits, numChecks, pool);
     }
 
+    /**
+     * <h3>getSafePrime</h3>
+     * <p>A 2048-bit safe prime; see {@link #getSafePrime(int)}.</p>
+     */
     public static BigInteger getSafePrime() {
-        while (true) {
-            BigInteger q = getPrime(2048, 3072, 10);
-            BigInteger p = q.multiply(BigInteger.TWO).add(BigInteger.ONE);
-            if (checkPrime(p, 10)) {
-                return p;
-            }
-        }
+        return getSafePrime(2048);
+    }
+
+    /**
+     * <h3>getSafePrime</h3>
+     * <p>A random safe prime p = 2q + 1, with q prime, of exactly bits bits, searched for on the common
+     * fork-join pool.  Where a standard group will do, {@link DHGroup} has ready-made ones.</p>
+     * @param bits The bit width of p, at least 3
+     */
+    public static BigInteger getSafePrime(int bits) {
+        return getSafePrime(bits, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * As {@link #getSafePrime(int)}, testing candidates on the given pool.
+     */
+    public static BigInteger getSafePrime(int bits, ForkJoinPool pool) {
+        if (bits < 3) {
+            throw new IllegalArgumentException("Safe primes have at least 3 bits");
+        }
+        return PrimeSearch.findSafe(bits, 10, pool);
     }
 
     public static BigInteger gcd(BigInteger a, BigInteger b) {
@@ -149,7 +159,6 @@ public class Crypto {
         BigInteger x1 = values[1];
         BigInteger y1 = values[2];
         BigInteger y = x1.subtract(a.divide(b).multiply(y1));
-        System.out.printf("gcd = %s, a = %s, b = %s%n", gcd, y1, y);
         return new BigInteger[]{gcd, y1, y};
     }
 
@@ -164,6 +173,10 @@ public class Crypto {
     }
 
     public static void main(String[] args) {
-        extendedGCD(new BigInteger("65537"), new BigInteger("3120"));
+        BigInteger e = new BigInteger("65537");
+        BigInteger phi = new BigInteger("3120");
+        BigInteger[] result = extendedGCD(e, phi);
+        System.out.printf("gcd(%s, %s) = %s = %s * %s + %s * %s%n", e, phi, result[0], result[1], e, result[2], phi);
+        System.out.printf("%s^-1 mod %s = %s%n", e, phi, modularInverse(e, phi));
     }
 }
\ No newline at end of file
@@ -9,29 +9,76 @@ public class DHE {
     /**
      * <h3>generator</h3>
      * <p>Member variable for the generator parameter.</p>
-     * <p><b>Do not leave this public</b></p>
      */
-    public BigInteger generator;
-    // TODO
+    private final BigInteger generator;
 
     /**
      * <h3>prime</h3>
      * <p>Member variable for the prime parameter.</p>
-     * <p><b>Do not leave this public</b></p>
      */
-    public BigInteger prime;
-    // TODO
+    private final BigInteger prime;
+
+    /**
+     * <h3>generatorPowers</h3>
+     * <p>The fixed-base table for generator, covering exponents as long as prime, so that public values need no
+     * squarings.  Shared keys have a fresh base each time and go to BigInteger.modPow instead.</p>
+     */
+    private final Montgomery.FixedBase generatorPowers;
 
     /**
      * <h3>DHE Constructor</h3>
      * <p>The constructor for the DHE class.</p>
      * <p>Accepts int values gBits and pBits to specify the bit widths of the relevant parameters.</p>
      * <p>These values should be generated securely using the methods provided in the Crypto class and stored in the corresponding member variables.</p>
+     * <p>The safe prime is searched for on the calling thread and the common fork-join pool; no
+     * {@link PrimePool} is involved unless one is passed in.</p>
      * @param gBits The number of bits (bit width) to target for the generator
      * @param pBits The number of bits to target for the prime modulus
      */
     public DHE(int gBits, int pBits) {
-        // TODO
+        this(Crypto.getSafePrime(pBits), gBits);
+    }
+
+    /**
+     * <h3>DHE Constructor</h3>
+     * <p>As {@link #DHE(int, int)}, taking the safe prime from the given pool when it has one ready, such as
+     * {@link PrimePool#shared()}.</p>
+     */
+    public DHE(int gBits, int pBits, PrimePool pool) {
+        this(pool.safePrime(pBits), gBits);
+    }
+
+    private DHE(BigInteger prime, int gBits) {
+        this(prime, Crypto.getGenerator(gBits, prime));
+    }
+
+    /**
+     * <h3>DHE Constructor</h3>
+     * <p>Uses the prime and generator of a standard group, so no parameters need to be generated.</p>
+     * @param group One of the RFC 3526 or RFC 7919 groups
+     */
+    public DHE(DHGroup group) {
+        this.prime = group.getPrime();
+        this.generator = group.getGenerator();
+        this.generatorPowers = new Montgomery(prime).fixedBase(generator, prime.bitLength());
+    }
+
+    /**
+     * <h3>DHE Constructor</h3>
+     * <p>Uses parameters that the caller has already validated, as {@link DHParameterStore} does.</p>
+     */
+    DHE(BigInteger prime, BigInteger generator) {
+        this.prime = prime;
+        this.generator = generator;
+        this.generatorPowers = new Montgomery(prime).fixedBase(generator, prime.bitLength());
+    }
+
+    public BigInteger getGenerator() {
+        return generator;
+    }
+
+    public BigInteger getPrime() {
+        return prime;
     }
 
     /**
@@ -41,8 +88,7 @@ public class DHE {
      * @return The generated base value
      */
     public BigInteger getBase(int bits) {
-        // TODO
-        return null;
+        return Crypto.getRandom(bits - 1, bits);
     }
 
     /**
@@ -52,8 +98,7 @@ public class DHE {
      * @return The result of g^b mod p using our fast modular exponentiation method
      */
     public BigInteger getExponent(BigInteger base) {
-        // TODO
-        return null;
+        return generatorPowers.pow(base);
     }
 
     /**
@@ -64,8 +109,7 @@ public class DHE {
      * @return The result of E^b mod p using our fast modular exponentiation method
      */
     public BigInteger getKey(BigInteger base, BigInteger exponent) {
-        // TODO
-        return null;
+        return exponent.modPow(base, prime);
     }
 
     /**
@@ -0,0 +1,279 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * <h1>DHParameterStore</h1>
+ * <p>A registry of named Diffie-Hellman groups (a safe prime p and a generator g) that can be saved to a
+ * compact binary file, so that a process can start with groups generated by an earlier one instead of
+ * searching for a safe prime.  Every {@link DHGroup} is registered under its own name.</p>
+ * <p>The file is a magic number and version, the group count, then for each group its name (UTF-8), p and g
+ * (unsigned big-endian), each prefixed with its length, and finally a SHA-256 digest of everything before it.
+ * Loading maps the file, checks the digest, and re-checks every prime with a few Miller-Rabin rounds in
+ * parallel.</p>
+ */
+public class DHParameterStore {
+    private static final int MAGIC = 0x44485053; // "DHPS"
+    private static final int VERSION = 1;
+    private static final int DIGEST_SIZE = 32;
+    private static final int CHECKS = 10; // Miller-Rabin rounds on q for a newly registered group
+    private static final int LOAD_CHECKS = 2; // Rounds on re-checking a group whose file passed its digest
+
+    private final NavigableMap<String, Group> groups = new ConcurrentSkipListMap<>();
+    private final Map<String, DHE> instances = new ConcurrentHashMap<>();
+
+    /**
+     * <h3>DHParameterStore Constructor</h3>
+     * <p>A store holding only the {@link DHGroup} groups.</p>
+     */
+    public DHParameterStore() {
+        for (DHGroup group : DHGroup.values()) {
+            groups.put(group.name(), new Group(group.getPrime(), group.getGenerator(), true));
+        }
+    }
+
+    /**
+     * <h3>load</h3>
+     * <p>Reads a file written by {@link #save(Path)}, re-checking its groups on the common fork-join pool.</p>
+     * @throws IOException If the file cannot be read, is corrupt, or holds a group that fails its check
+     */
+    public static DHParameterStore load(Path file) throws IOException {
+        return load(file, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * As {@link #load(Path)}, re-checking the groups on the given pool.
+     */
+    public static DHParameterStore load(Path file, ForkJoinPool pool) throws IOException {
+        Map<String, Group> read = read(file);
+        Map<String, ForkJoinTask<Boolean>> checks = new HashMap<>();
+        for (Map.Entry<String, Group> entry : read.entrySet()) {
+            Group group = entry.getValue();
+            checks.put(entry.getKey(), pool.submit(() -> isValid(group.prime, group.generator, LOAD_CHECKS)));
+        }
+        DHParameterStore store = new DHParameterStore();
+        for (Map.Entry<String, Group> entry : read.entrySet()) {
+            String name = entry.getKey();
+            if (!checks.get(name).join()) {
+                throw new IOException("Group " + name + " failed validation");
+            }
+            if (store.groups.putIfAbsent(name, entry.getValue()) != null) {
+                throw new IOException("Group " + name + " is already defined");
+            }
+        }
+        return store;
+    }
+
+    /**
+     * <h3>save</h3>
+     * <p>Writes every group registered here other than the {@link DHGroup} ones to the file, replacing it.
+     * The file is written beside the target and then moved into place, so a reader never sees half of it.</p>
+     */
+    public void save(Path file) throws IOException {
+        List<Map.Entry<String, Group>> saved = new ArrayList<>();
+        for (Map.Entry<String, Group> entry : groups.entrySet()) {
+            if (!entry.getValue().builtIn) {
+                saved.add(entry);
+            }
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(saved.size());
+        for (Map.Entry<String, Group> entry : saved) {
+            byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            out.writeShort(name.length);
+            out.write(name);
+            writeNumber(out, entry.getValue().prime);
+            writeNumber(out, entry.getValue().generator);
+        }
+        out.write(sha256().digest(bytes.toByteArray()));
+        out.flush();
+
+        Path target = file.toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, bytes.toByteArray());
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * <h3>register</h3>
+     * <p>Adds a group after checking that prime is a safe prime and generator lies in [2, p - 2], so that it
+     * generates the subgroup of order q or the whole group of order 2q.</p>
+     * @throws IllegalArgumentException If the name is taken or the parameters do not pass the check
+     */
+    public void register(String name, BigInteger prime, BigInteger generator) {
+        checkName(name);
+        if (!isValid(prime, generator, CHECKS)) {
+            throw new IllegalArgumentException("Not a safe prime and generator: " + name);
+        }
+        add(name, new Group(prime, generator, false));
+    }
+
+    /**
+     * <h3>generate</h3>
+     * <p>Generates a group as {@link DHE#DHE(int, int)} does and registers it.</p>
+     * @param gBits The number of bits (bit width) to target for the generator
+     * @param pBits The number of bits for the prime modulus
+     */
+    public void generate(String name, int gBits, int pBits) {
+        checkName(name);
+        BigInteger prime = Crypto.getSafePrime(pBits);
+        add(name, new Group(prime, Crypto.getGenerator(gBits, prime), false));
+    }
+
+    /**
+     * <h3>names</h3>
+     * @return The registered group names in sorted order
+     */
+    public Set<String> names() {
+        return Collections.unmodifiableSet(groups.keySet());
+    }
+
+    public boolean contains(String name) {
+        return groups.containsKey(name);
+    }
+
+    /**
+     * <h3>get</h3>
+     * <p>The {@link DHE} for a registered group.  It is built the first time it is asked for and shared after
+     * that; its methods can be called from several threads.</p>
+     * @throws IllegalArgumentException If no group has that name
+     */
+    public DHE get(String name) {
+        Group group = groups.get(name);
+        if (group == null) {
+            throw new IllegalArgumentException("Unknown group: " + name);
+        }
+        return instances.computeIfAbsent(name, k -> new DHE(group.prime, group.generator));
+    }
+
+    private void add(String name, Group group) {
+        if (groups.putIfAbsent(name, group) != null) {
+            throw new IllegalArgumentException("Group already registered: " + name);
+        }
+    }
+
+    private void checkName(String name) {
+        if (groups.containsKey(name)) {
+            throw new IllegalArgumentException("Group already registered: " + name);
+        }
+        int length = name.getBytes(StandardCharsets.UTF_8).length;
+        if (length == 0 || length > 0xFFFF) {
+            throw new IllegalArgumentException("Group names must be 1 to 65535 bytes long");
+        }
+    }
+
+    private static boolean isValid(BigInteger prime, BigInteger generator, int numChecks) {
+        return generator.compareTo(BigInteger.ONE) > 0
+                && generator.compareTo(prime.subtract(BigInteger.ONE)) < 0
+                && Crypto.checkSafePrime(prime, numChecks);
+    }
+
+    // Parses the file through a read-only mapping, after checking its digest
+    private static Map<String, Group> read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 10 + DIGEST_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid parameter file length");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int body = (int) size - DIGEST_SIZE;
+            MessageDigest sha = sha256();
+            sha.update(buffer.slice(0, body));
+            byte[] expected = new byte[DIGEST_SIZE];
+            buffer.get(body, expected);
+            if (!MessageDigest.isEqual(sha.digest(), expected)) {
+                throw new IOException("Parameter file digest mismatch");
+            }
+
+            ByteBuffer in = buffer.slice(0, body);
+            if (in.getInt() != MAGIC || in.getShort() != VERSION) {
+                throw new IOException("Not a parameter file, or an unsupported version");
+            }
+            int count = in.getInt();
+            Map<String, Group> read = new TreeMap<>();
+            for (int i = 0; i < count; i++) {
+                byte[] name = new byte[in.getShort() & 0xFFFF];
+                in.get(name);
+                BigInteger prime = readNumber(in);
+                BigInteger generator = readNumber(in);
+                if (read.put(new String(name, StandardCharsets.UTF_8), new Group(prime, generator, false)) != null) {
+                    throw new IOException("Duplicate group in parameter file");
+                }
+            }
+            if (in.hasRemaining()) {
+                throw new IOException("Trailing bytes in parameter file");
+            }
+            return read;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Corrupt parameter file", e);
+        }
+    }
+
+    private static void writeNumber(DataOutputStream out, BigInteger value) throws IOException {
+        byte[] bytes = value.toByteArray();
+        int skip = bytes[0] == 0 && bytes.length > 1 ? 1 : 0; // The sign byte of a positive number
+        out.writeInt(bytes.length - skip);
+        out.write(bytes, skip, bytes.length - skip);
+    }
+
+    private static BigInteger readNumber(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0 || length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new BigInteger(1, bytes);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static final class Group {
+        final BigInteger prime;
+        final BigInteger generator;
+        final boolean builtIn;
+
+        Group(BigInteger prime, BigInteger generator, boolean builtIn) {
+            this.prime = prime;
+            this.generator = generator;
+            this.builtIn = builtIn;
+        }
+    }
+}
@@ -0,0 +1,335 @@
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * <h1>Envelope</h1>
+ * <p>Hybrid encryption for messages of any size: the payload is encrypted with {@link GCM} under a fresh random
+ * {@link AES} key, and only that 16-byte key is encrypted with {@link RSA}.  Sealing costs one public-key
+ * operation and opening one private-key operation however long the message is; the rest runs at AES speed.</p>
+ * <p>An envelope is the wrapped key (one block as wide as the recipient's modulus), the 12-byte nonce, the
+ * ciphertext and the 16-byte tag, which also covers the wrapped key.  The byte array and stream forms produce
+ * and accept the same format.</p>
+ * <p>Opening fails in one way only, on the tag.  A wrapped key that does not decrypt to a key is replaced by a
+ * random one, so a tampered header and a tampered payload are rejected alike and neither the RSA block
+ * format nor any padding is exposed.</p>
+ */
+public class Envelope {
+    private static final int KEY_SIZE = 16;
+    private static final int NONCE_SIZE = GCM.NONCE_SIZE;
+    private static final int TAG_SIZE = GCM.TAG_SIZE;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final RSA rsa;
+
+    /**
+     * <h3>Envelope Constructor</h3>
+     * @param rsa The key pair whose private key opens envelopes; sealing only uses the recipient's public key
+     */
+    public Envelope(RSA rsa) {
+        this.rsa = rsa;
+    }
+
+    /**
+     * <h3>seal</h3>
+     * @param message The payload
+     * @param pubKey The recipient's public key [e, n]
+     * @return The envelope
+     */
+    public byte[] seal(byte[] message, BigInteger[] pubKey) {
+        byte[] key = new byte[KEY_SIZE];
+        byte[] nonce = new byte[NONCE_SIZE];
+        RANDOM.nextBytes(key);
+        RANDOM.nextBytes(nonce);
+        byte[] wrapped = wrap(key, pubKey);
+        byte[] sealed = gcm(key).encrypt(nonce, wrapped, message);
+        int header = wrapped.length + NONCE_SIZE;
+        byte[] envelope = new byte[header + sealed.length];
+        System.arraycopy(wrapped, 0, envelope, 0, wrapped.length);
+        System.arraycopy(nonce, 0, envelope, wrapped.length, NONCE_SIZE);
+        System.arraycopy(sealed, 0, envelope, header, sealed.length);
+        return envelope;
+    }
+
+    /**
+     * <h3>seal</h3>
+     * <p>Writes the envelope header to out and returns a stream that encrypts the payload into it.  Closing the
+     * returned stream writes the tag and closes out.</p>
+     * @param out The stream receiving the envelope
+     * @param pubKey The recipient's public key [e, n]
+     */
+    public OutputStream seal(OutputStream out, BigInteger[] pubKey) throws IOException {
+        byte[] key = new byte[KEY_SIZE];
+        byte[] nonce = new byte[NONCE_SIZE];
+        RANDOM.nextBytes(key);
+        RANDOM.nextBytes(nonce);
+        byte[] wrapped = wrap(key, pubKey);
+        GCM.Session session = gcm(key).session(nonce);
+        session.updateAAD(wrapped, 0, wrapped.length);
+        out.write(wrapped);
+        out.write(nonce);
+        return new SealStream(out, session);
+    }
+
+    /**
+     * <h3>open</h3>
+     * @param envelope An envelope sealed for this key pair
+     * @return The payload
+     * @throws IllegalArgumentException If the envelope is too short, or fails authentication because it was
+     * altered or sealed for another key
+     */
+    public byte[] open(byte[] envelope) {
+        int width = width(rsa.getPubKey()[1]);
+        int header = width + NONCE_SIZE;
+        if (envelope.length < header + TAG_SIZE) {
+            throw new IllegalArgumentException("Invalid envelope length");
+        }
+        byte[] wrapped = Arrays.copyOf(envelope, width);
+        byte[] nonce = Arrays.copyOfRange(envelope, width, header);
+        return unwrap(wrapped).decrypt(nonce, wrapped, Arrays.copyOfRange(envelope, header, envelope.length));
+    }
+
+    /**
+     * <h3>open</h3>
+     * <p>Reads the envelope header from in and returns a stream of the decrypted payload.  The tag is only
+     * checked once the end of in is reached, so the payload must not be acted on until the returned stream
+     * has reported its end: if the envelope was altered or sealed for another key, that last read throws
+     * instead.</p>
+     * @param in A stream positioned at the start of an envelope sealed for this key pair
+     */
+    public InputStream open(InputStream in) throws IOException {
+        int width = width(rsa.getPubKey()[1]);
+        byte[] header = in.readNBytes(width + NONCE_SIZE);
+        if (header.length < width + NONCE_SIZE) {
+            throw new IOException("Truncated envelope header");
+        }
+        byte[] wrapped = Arrays.copyOf(header, width);
+        GCM.Session session = unwrap(wrapped).session(Arrays.copyOfRange(header, width, header.length));
+        session.updateAAD(wrapped, 0, wrapped.length);
+        return new OpenStream(in, session);
+    }
+
+    private byte[] wrap(byte[] key, BigInteger[] pubKey) {
+        if (width(pubKey[1]) - 2 < KEY_SIZE) {
+            throw new IllegalArgumentException("Modulus too small to wrap an AES key");
+        }
+        return rsa.encrypt(key, pubKey);
+    }
+
+    // The cipher for the wrapped key, or for a random key if it does not unwrap, so that the tag fails instead
+    private GCM unwrap(byte[] wrapped) {
+        byte[] key;
+        try {
+            key = rsa.decrypt(wrapped);
+        } catch (IllegalArgumentException e) {
+            key = null;
+        }
+        if (key == null || key.length != KEY_SIZE) {
+            key = new byte[KEY_SIZE];
+            RANDOM.nextBytes(key);
+        }
+        return gcm(key);
+    }
+
+    private static GCM gcm(byte[] key) {
+        return new GCM(new AES(key, false));
+    }
+
+    private static int width(BigInteger modulus) {
+        return (modulus.bitLength() + 7) / 8;
+    }
+
+    /*
+     * Encrypts the payload a buffer at a time; close() appends the tag.
+     */
+    private static final class SealStream extends FilterOutputStream {
+        private final GCM.Session session;
+        private final byte[] buffer = new byte[AESOutputStream.BUFFER_SIZE];
+        private int count;
+        private boolean closed;
+
+        SealStream(OutputStream out, GCM.Session session) {
+            super(out);
+            this.session = session;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            ensureOpen();
+            buffer[count++] = (byte) b;
+            if (count == buffer.length) {
+                writeBuffer();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ensureOpen();
+            while (len > 0) {
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+                if (count == buffer.length) {
+                    writeBuffer();
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            ensureOpen();
+            writeBuffer();
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                writeBuffer();
+                out.write(session.tag());
+                out.flush();
+            } finally {
+                out.close();
+            }
+        }
+
+        private void writeBuffer() throws IOException {
+            session.encrypt(buffer, 0, count, buffer, 0);
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+
+        private void ensureOpen() throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+        }
+    }
+
+    /*
+     * Decrypts the payload a buffer at a time, always holding back the last TAG_SIZE bytes read, which are the
+     * tag once the wrapped stream ends.
+     */
+    private static final class OpenStream extends FilterInputStream {
+        private final GCM.Session session;
+        private final byte[] buffer = new byte[AESOutputStream.BUFFER_SIZE];
+        private int pos; // Next plaintext byte to return
+        private int end; // End of the decrypted plaintext, start of the bytes held back
+        private int filled; // End of the bytes read so far
+        private boolean eof;
+        private boolean closed;
+
+        OpenStream(InputStream in, GCM.Session session) {
+            super(in);
+            this.session = session;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return buffer[pos++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int n = Math.min(len, end - pos);
+            System.arraycopy(buffer, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+            while (skipped < n && fill()) {
+                int step = (int) Math.min(n - skipped, end - pos);
+                pos += step;
+                skipped += step;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            ensureOpen();
+            return end - pos;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public synchronized void mark(int readlimit) {
+        }
+
+        @Override
+        public synchronized void reset() throws IOException {
+            throw new IOException("mark/reset not supported");
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                in.close();
+            }
+        }
+
+        // Makes sure decrypted bytes are available; returns false at the end of an authenticated payload
+        private boolean fill() throws IOException {
+            ensureOpen();
+            while (pos == end) {
+                if (eof) {
+                    return false;
+                }
+                System.arraycopy(buffer, end, buffer, 0, filled - end);
+                filled -= end;
+                pos = 0;
+                end = 0;
+
+                int n = in.read(buffer, filled, buffer.length - filled);
+                if (n < 0) {
+                    eof = true;
+                    if (filled < TAG_SIZE || !session.verify(Arrays.copyOf(buffer, TAG_SIZE))) {
+                        throw new IOException("Envelope failed authentication");
+                    }
+                } else {
+                    filled += n;
+                    int release = filled - TAG_SIZE;
+                    if (release > 0) {
+                        session.decrypt(buffer, 0, release, buffer, 0);
+                        end = release;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private void ensureOpen() throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+        }
+    }
+}
@@ -0,0 +1,275 @@
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * <h1>GCM</h1>
+ * <p>AES-GCM authenticated encryption (NIST SP 800-38D) on top of the {@link AES} block function.  Encryption
+ * and authentication happen in a single pass: each ciphertext block is folded into GHASH as soon as it is
+ * produced.  GHASH multiplies by the hash key H with Shoup's 4-bit method, using sixteen precomputed multiples
+ * of H and a sixteen-entry reduction table.</p>
+ * <p>Only 96-bit nonces are accepted.  A nonce must never be reused with the same key.</p>
+ */
+public class GCM {
+    public static final int NONCE_SIZE = 12;
+    public static final int TAG_SIZE = 16;
+    private static final int BLOCK_SIZE = AESEngine.BLOCK_SIZE;
+
+    // Reduction constants for the four bits shifted out of Z on every step
+    private static final long[] REM_4BIT = {
+        0x0000L << 48, 0x1C20L << 48, 0x3840L << 48, 0x2460L << 48,
+        0x7080L << 48, 0x6CA0L << 48, 0x48C0L << 48, 0x54E0L << 48,
+        0xE100L << 48, 0xFD20L << 48, 0xD940L << 48, 0xC560L << 48,
+        0x9180L << 48, 0x8DA0L << 48, 0xA9C0L << 48, 0xB5E0L << 48
+    };
+
+    private final AES aes;
+    private final long[] hHi = new long[16]; // hHi[i], hLo[i] hold H * i for a 4-bit i
+    private final long[] hLo = new long[16];
+
+    /**
+     * <h3>GCM Constructor</h3>
+     * <p>Derives the hash key H = E(K, 0^128) and builds its multiplication table.</p>
+     * @param aes The cipher holding the key
+     */
+    public GCM(AES aes) {
+        this.aes = aes;
+        byte[] h = new byte[BLOCK_SIZE];
+        aes.encryptBlock(h, 0, h, 0);
+        long vHi = AESEngine.getLong(h, 0);
+        long vLo = AESEngine.getLong(h, 8);
+        hHi[8] = vHi;
+        hLo[8] = vLo;
+        for (int i = 4; i > 0; i >>= 1) {
+            // Multiply by x: shift right one bit in GCM's reflected bit order and reduce
+            long t = 0xE100000000000000L & -(vLo & 1);
+            vLo = (vHi << 63) | (vLo >>> 1);
+            vHi = (vHi >>> 1) ^ t;
+            hHi[i] = vHi;
+            hLo[i] = vLo;
+        }
+        for (int i = 2; i < 16; i <<= 1) {
+            for (int j = 1; j < i; j++) {
+                hHi[i + j] = hHi[i] ^ hHi[j];
+                hLo[i + j] = hLo[i] ^ hLo[j];
+            }
+        }
+    }
+
+    /**
+     * <h3>encrypt</h3>
+     * @param nonce The 12-byte nonce
+     * @param aad Additional data to authenticate but not encrypt, may be empty
+     * @param plaintext The message to encrypt
+     * @return The ciphertext followed by the 16-byte authentication tag
+     */
+    public byte[] encrypt(byte[] nonce, byte[] aad, byte[] plaintext) {
+        Session session = session(nonce);
+        session.updateAAD(aad, 0, aad.length);
+        byte[] output = new byte[plaintext.length + TAG_SIZE];
+        session.encrypt(plaintext, 0, plaintext.length, output, 0);
+        System.arraycopy(session.tag(), 0, output, plaintext.length, TAG_SIZE);
+        return output;
+    }
+
+    /**
+     * <h3>decrypt</h3>
+     * @param nonce The 12-byte nonce used for encryption
+     * @param aad The additional data passed to encrypt
+     * @param ciphertext The ciphertext followed by its 16-byte tag
+     * @return The plaintext, only returned once the tag has been verified
+     */
+    public byte[] decrypt(byte[] nonce, byte[] aad, byte[] ciphertext) {
+        if (ciphertext.length < TAG_SIZE) {
+            throw new IllegalArgumentException("Invalid ciphertext length");
+        }
+        int length = ciphertext.length - TAG_SIZE;
+        Session session = session(nonce);
+        session.updateAAD(aad, 0, aad.length);
+        byte[] output = new byte[length];
+        session.decrypt(ciphertext, 0, length, output, 0);
+        byte[] tag = new byte[TAG_SIZE];
+        System.arraycopy(ciphertext, length, tag, 0, TAG_SIZE);
+        if (!session.verify(tag)) {
+            Arrays.fill(output, (byte) 0);
+            throw new IllegalArgumentException("Authentication tag mismatch");
+        }
+        return output;
+    }
+
+    /**
+     * <h3>session</h3>
+     * <p>Starts a streaming encryption or decryption for one message.</p>
+     * @param nonce The 12-byte nonce
+     */
+    public Session session(byte[] nonce) {
+        if (nonce == null || nonce.length != NONCE_SIZE) {
+            throw new IllegalArgumentException("Nonce must be 12 bytes long");
+        }
+        return new Session(nonce);
+    }
+
+    /**
+     * <h1>Session</h1>
+     * <p>Streaming state for one message.  AAD may be supplied in any number of pieces before the first payload
+     * call, and the payload in any number of pieces after it.  Decrypted bytes are released before the tag is
+     * checked, so callers must discard them if {@link #verify(byte[])} fails.</p>
+     */
+    public final class Session {
+        private final byte[] counter = new byte[BLOCK_SIZE];
+        private final byte[] tagMask = new byte[BLOCK_SIZE]; // E(K, J0)
+        private final byte[] keystream = new byte[BLOCK_SIZE];
+        private int keystreamUsed = BLOCK_SIZE;
+        private final byte[] pending = new byte[BLOCK_SIZE]; // Partial GHASH input block
+        private int pendingLength;
+        private long xHi;
+        private long xLo;
+        private long aadLength;
+        private long dataLength;
+        private boolean dataStarted;
+        private byte[] tag;
+
+        private Session(byte[] nonce) {
+            System.arraycopy(nonce, 0, counter, 0, NONCE_SIZE);
+            counter[BLOCK_SIZE - 1] = 1;
+            aes.encryptBlock(counter, 0, tagMask, 0);
+        }
+
+        public void updateAAD(byte[] aad, int off, int len) {
+            if (dataStarted || tag != null) {
+                throw new IllegalStateException("AAD must be supplied before the payload");
+            }
+            absorb(aad, off, len);
+            aadLength += len;
+        }
+
+        public void encrypt(byte[] in, int inOff, int len, byte[] out, int outOff) {
+            startData(len);
+            for (int i = 0; i < len; i++) {
+                out[outOff + i] = (byte) (in[inOff + i] ^ nextKeystreamByte());
+            }
+            absorb(out, outOff, len);
+        }
+
+        public void decrypt(byte[] in, int inOff, int len, byte[] out, int outOff) {
+            startData(len);
+            absorb(in, inOff, len); // Hash the ciphertext first, in and out may be the same array
+            for (int i = 0; i < len; i++) {
+                out[outOff + i] = (byte) (in[inOff + i] ^ nextKeystreamByte());
+            }
+        }
+
+        /**
+         * Finishes the message and returns the 16-byte authentication tag.
+         */
+        public byte[] tag() {
+            if (tag == null) {
+                flushPending();
+                xHi ^= aadLength * 8;
+                xLo ^= dataLength * 8;
+                multiplyH();
+                tag = new byte[BLOCK_SIZE];
+                AESEngine.putLong(tag, 0, xHi);
+                AESEngine.putLong(tag, 8, xLo);
+                for (int i = 0; i < BLOCK_SIZE; i++) {
+                    tag[i] ^= tagMask[i];
+                }
+            }
+            return tag.clone();
+        }
+
+        /**
+         * Finishes the message and compares the computed tag with the expected one in constant time.
+         */
+        public boolean verify(byte[] expected) {
+            return MessageDigest.isEqual(tag(), expected);
+        }
+
+        private void startData(int len) {
+            if (tag != null) {
+                throw new IllegalStateException("Session already finished");
+            }
+            if (!dataStarted) {
+                flushPending(); // The AAD is zero-padded to a whole block
+                dataStarted = true;
+            }
+            dataLength += len;
+        }
+
+        private int nextKeystreamByte() {
+            if (keystreamUsed == BLOCK_SIZE) {
+                // inc32: only the low 32 bits of the counter block are incremented
+                for (int i = BLOCK_SIZE - 1; i >= NONCE_SIZE; i--) {
+                    if (++counter[i] != 0) {
+                        break;
+                    }
+                }
+                aes.encryptBlock(counter, 0, keystream, 0);
+                keystreamUsed = 0;
+            }
+            return keystream[keystreamUsed++];
+        }
+
+        private void absorb(byte[] b, int off, int len) {
+            if (pendingLength > 0) {
+                int n = Math.min(len, BLOCK_SIZE - pendingLength);
+                System.arraycopy(b, off, pending, pendingLength, n);
+                pendingLength += n;
+                off += n;
+                len -= n;
+                if (pendingLength < BLOCK_SIZE) {
+                    return;
+                }
+                xHi ^= AESEngine.getLong(pending, 0);
+                xLo ^= AESEngine.getLong(pending, 8);
+                multiplyH();
+                pendingLength = 0;
+            }
+            while (len >= BLOCK_SIZE) {
+                xHi ^= AESEngine.getLong(b, off);
+                xLo ^= AESEngine.getLong(b, off + 8);
+                multiplyH();
+                off += BLOCK_SIZE;
+                len -= BLOCK_SIZE;
+            }
+            System.arraycopy(b, off, pending, 0, len);
+            pendingLength = len;
+        }
+
+        private void flushPending() {
+            if (pendingLength > 0) {
+                Arrays.fill(pending, pendingLength, BLOCK_SIZE, (byte) 0);
+                xHi ^= AESEngine.getLong(pending, 0);
+                xLo ^= AESEngine.getLong(pending, 8);
+                multiplyH();
+                pendingLength = 0;
+            }
+        }
+
+        // X = X * H, consuming X four bits at a time from the last byte to the first
+        private void multiplyH() {
+            int b = (int) xLo & 0xFF;
+            int nlo = b & 0xF;
+            int nhi = b >>> 4;
+            long zHi = hHi[nlo];
+            long zLo = hLo[nlo];
+            for (int cnt = 15; ; ) {
+                int rem = (int) zLo & 0xF;
+                zLo = (zHi << 60) | (zLo >>> 4);
+                zHi = (zHi >>> 4) ^ REM_4BIT[rem] ^ hHi[nhi];
+                zLo ^= hLo[nhi];
+                if (--cnt < 0) {
+                    break;
+                }
+                b = (int) ((cnt >= 8 ? xLo >>> (8 * (15 - cnt)) : xHi >>> (8 * (7 - cnt))) & 0xFF);
+                nlo = b & 0xF;
+                nhi = b >>> 4;
+                rem = (int) zLo & 0xF;
+                zLo = (zHi << 60) | (zLo >>> 4);
+                zHi = (zHi >>> 4) ^ REM_4BIT[rem] ^ hHi[nlo];
+                zLo ^= hLo[nlo];
+            }
+            xHi = zHi;
+            xLo = zLo;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * <h1>GroupKeyAgreement</h1>
+ * <p>Tree-based Diffie-Hellman key agreement for n members of one {@link DHE} group.  The members are the
+ * leaves of a balanced binary tree.  A leaf's key is its member's secret; the key of an inner node whose
+ * children have keys k<sub>l</sub> and k<sub>r</sub> is g<sup>k<sub>l</sub>k<sub>r</sub></sup> mod p, which
+ * the left side computes as (g<sup>k<sub>r</sub></sup>)<sup>k<sub>l</sub></sup> and the right side as
+ * (g<sup>k<sub>l</sub></sup>)<sup>k<sub>r</sub></sup>.  The blinded key g<sup>k</sup> of every node below
+ * the root is public, and the root's key is the group key.</p>
+ * <p>A member holding its secret and the blinded keys of the siblings along its path to the root (its
+ * co-path) reaches the group key in one exponentiation per level, about log<sub>2</sub> n in all.  Each
+ * member runs on its own secret only: {@link #computePath} gives the blinded keys of its path, which it
+ * publishes so that the members on the other side of each node can extend their co-paths, and
+ * {@link #computeKey} gives the group key once the co-path is complete.  The blinded keys of a subtree are
+ * published by its leftmost member, level by level from the leaves up.</p>
+ * <p>{@link #agree} is a test harness rather than a protocol: it is handed every member's secret and plays
+ * all of them in one process, for tests, benchmarks and setups where a single party deals the keys.  It
+ * works out the whole tree once, each node's key and blinded key computed a single time and the two subtrees
+ * of each node on separate fork-join tasks, and gives the same blinded keys and group key as the members'
+ * own steps would.</p>
+ */
+public class GroupKeyAgreement {
+    private final DHE dhe;
+
+    /**
+     * <h3>GroupKeyAgreement Constructor</h3>
+     * @param dhe The group every member uses
+     */
+    public GroupKeyAgreement(DHE dhe) {
+        this.dhe = dhe;
+    }
+
+    /**
+     * <h3>agree</h3>
+     * <p>Builds the tree for the given member secrets on the common fork-join pool, standing in for every
+     * member; see the class description.</p>
+     * @param secrets One secret exponent per member, as from {@link DHE#getBase(int)}, at least two
+     * @return The tree, holding the group key and every member's co-path
+     */
+    public Tree agree(List<BigInteger> secrets) {
+        return agree(secrets, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * As {@link #agree(List)}, computing independent subtrees on the given pool.
+     */
+    public Tree agree(List<BigInteger> secrets, ForkJoinPool pool) {
+        if (secrets.size() < 2) {
+            throw new IllegalArgumentException("A group needs at least two members");
+        }
+        BigInteger[] blinded = new BigInteger[4 * secrets.size()];
+        BigInteger key = pool.invoke(new NodeTask(secrets, blinded, 1, 0, secrets.size()));
+        return new Tree(secrets.size(), key, blinded);
+    }
+
+    /**
+     * <h3>computeKey</h3>
+     * <p>The group key as one member computes it: starting from its secret, each co-path entry B turns the
+     * current key k into B<sup>k</sup> mod p.</p>
+     * @param secret The member's secret exponent
+     * @param copath The blinded keys of the member's siblings from its leaf up to the root, as from
+     * {@link Tree#getCopath(int)}
+     * @return The group key
+     * @throws IllegalArgumentException If a blinded key lies outside [2, p - 2]
+     */
+    public BigInteger computeKey(BigInteger secret, List<BigInteger> copath) {
+        BigInteger key = secret;
+        for (BigInteger sibling : copath) {
+            key = dhe.getKey(key, checkBlinded(sibling));
+        }
+        return key;
+    }
+
+    /**
+     * <h3>computePath</h3>
+     * <p>The blinded keys a member publishes: that of its leaf, g<sup>secret</sup> mod p, then that of each
+     * node it reaches through the co-path.  The co-path may stop short of the root, as it does while the
+     * upper levels are still being agreed; the last entry is then the blinded key the member publishes as
+     * the leftmost member of the highest node reached.</p>
+     * @param secret The member's secret exponent
+     * @param copath The blinded keys of the member's siblings from its leaf upwards, as far as they are known
+     * @return copath.size() + 1 blinded keys, leaf first; with the full co-path the last one is the root's,
+     * which nobody needs
+     * @throws IllegalArgumentException If a blinded key lies outside [2, p - 2]
+     */
+    public List<BigInteger> computePath(BigInteger secret, List<BigInteger> copath) {
+        List<BigInteger> path = new ArrayList<>(copath.size() + 1);
+        BigInteger key = secret;
+        path.add(dhe.getExponent(key));
+        for (BigInteger sibling : copath) {
+            key = dhe.getKey(key, checkBlinded(sibling));
+            path.add(dhe.getExponent(key));
+        }
+        return path;
+    }
+
+    private BigInteger checkBlinded(BigInteger blinded) {
+        BigInteger pMinusOne = dhe.getPrime().subtract(BigInteger.ONE);
+        if (blinded.compareTo(BigInteger.ONE) <= 0 || blinded.compareTo(pMinusOne) >= 0) {
+            throw new IllegalArgumentException("Blinded key out of range");
+        }
+        return blinded;
+    }
+
+    /**
+     * <h1>Tree</h1>
+     * <p>The outcome of {@link #agree}: the group key and the public blinded keys of the tree.  Node 1 is the
+     * root, and node i covering members [lo, hi) has children 2i covering [lo, mid) and 2i + 1 covering
+     * [mid, hi), with mid = (lo + hi) / 2.</p>
+     */
+    public static final class Tree {
+        private final int members;
+        private final BigInteger key;
+        private final BigInteger[] blinded;
+
+        private Tree(int members, BigInteger key, BigInteger[] blinded) {
+            this.members = members;
+            this.key = key;
+            this.blinded = blinded;
+        }
+
+        public int getMembers() {
+            return members;
+        }
+
+        /**
+         * <h3>getKey</h3>
+         * @return The group key, the key of the root
+         */
+        public BigInteger getKey() {
+            return key;
+        }
+
+        /**
+         * <h3>getCopath</h3>
+         * @param member The member's index in the list of secrets
+         * @return The blinded keys that member needs for {@link GroupKeyAgreement#computeKey}, leaf first
+         */
+        public List<BigInteger> getCopath(int member) {
+            if (member < 0 || member >= members) {
+                throw new IllegalArgumentException("No such member: " + member);
+            }
+            List<BigInteger> copath = new ArrayList<>();
+            int node = 1;
+            int lo = 0;
+            int hi = members;
+            while (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                if (member < mid) {
+                    copath.add(blinded[2 * node + 1]);
+                    node = 2 * node;
+                    hi = mid;
+                } else {
+                    copath.add(blinded[2 * node]);
+                    node = 2 * node + 1;
+                    lo = mid;
+                }
+            }
+            Collections.reverse(copath);
+            return copath;
+        }
+    }
+
+    /*
+     * The key of node, covering members [lo, hi), as its leftmost member lo holds it.  The left subtree is
+     * forked while this task does the right one; only the right child's blinded key crosses over, as in
+     * computePath.  The node's own blinded key is stored for every node but the root.
+     */
+    @SuppressWarnings("serial")
+    private final class NodeTask extends RecursiveTask<BigInteger> {
+        private final List<BigInteger> secrets;
+        private final BigInteger[] blinded;
+        private final int node;
+        private final int lo;
+        private final int hi;
+
+        NodeTask(List<BigInteger> secrets, BigInteger[] blinded, int node, int lo, int hi) {
+            this.secrets = secrets;
+            this.blinded = blinded;
+            this.node = node;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected BigInteger compute() {
+            BigInteger key;
+            if (hi - lo == 1) {
+                key = secrets.get(lo);
+            } else {
+                int mid = (lo + hi) >>> 1;
+                NodeTask left = new NodeTask(secrets, blinded, 2 * node, lo, mid);
+                left.fork();
+                new NodeTask(secrets, blinded, 2 * node + 1, mid, hi).compute();
+                key = dhe.getKey(left.join(), blinded[2 * node + 1]);
+            }
+            if (node != 1) {
+                blinded[node] = dhe.getExponent(key);
+            }
+            return key;
+        }
+    }
+}
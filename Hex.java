@@ -0,0 +1,67 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * <h1>Hex</h1>
+ * <p>Lookup-table hex encoding and strict decoding.  Each call allocates a single working array for its
+ * result; decoding rejects odd lengths and any character outside [0-9a-fA-F].</p>
+ */
+public final class Hex {
+    private static final byte[] DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            VALUES['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            VALUES['a' + i] = (byte) (10 + i);
+            VALUES['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    private Hex() {
+    }
+
+    /**
+     * <h3>encode</h3>
+     * @return The lowercase hex representation of bytes
+     */
+    public static String encode(byte[] bytes) {
+        byte[] chars = new byte[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int b = bytes[i] & 0xFF;
+            chars[2 * i] = DIGITS[b >>> 4];
+            chars[2 * i + 1] = DIGITS[b & 0xF];
+        }
+        return new String(chars, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * <h3>decode</h3>
+     * @param hex An even-length string of hex digits, upper or lower case
+     * @return The decoded bytes
+     * @throws IllegalArgumentException If the length is odd or a character is not a hex digit
+     */
+    public static byte[] decode(CharSequence hex) {
+        int len = hex.length();
+        if ((len & 1) != 0) {
+            throw new IllegalArgumentException("Hex string must have an even length");
+        }
+        byte[] data = new byte[len / 2];
+        for (int i = 0; i < len; i += 2) {
+            data[i / 2] = (byte) ((digit(hex, i) << 4) | digit(hex, i + 1));
+        }
+        return data;
+    }
+
+    private static int digit(CharSequence hex, int index) {
+        char c = hex.charAt(index);
+        int value = c < 128 ? VALUES[c] : -1;
+        if (value < 0) {
+            throw new IllegalArgumentException("Invalid hex character at index " + index);
+        }
+        return value;
+    }
+}
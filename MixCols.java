@@ -1,29 +1,90 @@
 public class MixCols {
-    private static final int[] mc2 = {2, 3, 1, 1};
-    private static final int[] mc3 = {3, 1, 1, 2};
-    private static final int[] mc9 = {9, 14, 11, 13};
-    private static final int[] mc11 = {11, 13, 9, 14};
-    private static final int[] mc13 = {13, 9, 14, 11};
-    private static final int[] mc14 = {14, 11, 13, 9};
+    // GF(2^8) products by the MixColumns / InvMixColumns coefficients, indexed by the other operand
+    private static final int[] mc2 = new int[256];
+    private static final int[] mc3 = new int[256];
+    private static final int[] mc9 = new int[256];
+    private static final int[] mc11 = new int[256];
+    private static final int[] mc13 = new int[256];
+    private static final int[] mc14 = new int[256];
+
+    static {
+        for (int a = 0; a < 256; a++) {
+            mc2[a] = gfMul(a, 2);
+            mc3[a] = gfMul(a, 3);
+            mc9[a] = gfMul(a, 9);
+            mc11[a] = gfMul(a, 11);
+            mc13[a] = gfMul(a, 13);
+            mc14[a] = gfMul(a, 14);
+        }
+    }
+
+    public static int mul2(int a) {
+        return mc2[a];
+    }
+
+    public static int mul3(int a) {
+        return mc3[a];
+    }
+
+    public static int mul9(int a) {
+        return mc9[a];
+    }
+
+    public static int mul11(int a) {
+        return mc11[a];
+    }
+
+    public static int mul13(int a) {
+        return mc13[a];
+    }
+
+    public static int mul14(int a) {
+        return mc14[a];
+    }
 
     public static int[] mix(int[] col) {
         int[] result = new int[4];
-        result[0] = (gfMul(col[0], 2) ^ gfMul(col[1], 3) ^ col[2] ^ col[3]) & 0xFF;
-        result[1] = (col[0] ^ gfMul(col[1], 2) ^ gfMul(col[2], 3) ^ col[3]) & 0xFF;
-        result[2] = (col[0] ^ col[1] ^ gfMul(col[2], 2) ^ gfMul(col[3], 3)) & 0xFF;
-        result[3] = (gfMul(col[0], 3) ^ col[1] ^ col[2] ^ gfMul(col[3], 2)) & 0xFF;
+        result[0] = mc2[col[0]] ^ mc3[col[1]] ^ col[2] ^ col[3];
+        result[1] = col[0] ^ mc2[col[1]] ^ mc3[col[2]] ^ col[3];
+        result[2] = col[0] ^ col[1] ^ mc2[col[2]] ^ mc3[col[3]];
+        result[3] = mc3[col[0]] ^ col[1] ^ col[2] ^ mc2[col[3]];
         return result;
     }
 
     public static int[] invMix(int[] col) {
         int[] result = new int[4];
-        result[0] = (gfMul(col[0], 14) ^ gfMul(col[1], 11) ^ gfMul(col[2], 13) ^ gfMul(col[3], 9)) & 0xFF;
-        result[1] = (gfMul(col[0], 9) ^ gfMul(col[1], 14) ^ gfMul(col[2], 11) ^ gfMul(col[3], 13)) & 0xFF;
-        result[2] = (gfMul(col[0], 13) ^ gfMul(col[1], 9) ^ gfMul(col[2], 14) ^ gfMul(col[3], 11)) & 0xFF;
-        result[3] = (gfMul(col[0], 11) ^ gfMul(col[1], 13) ^ gfMul(col[2], 9) ^ gfMul(col[3], 14)) & 0xFF;
+        result[0] = mc14[col[0]] ^ mc11[col[1]] ^ mc13[col[2]] ^ mc9[col[3]];
+        result[1] = mc9[col[0]] ^ mc14[col[1]] ^ mc11[col[2]] ^ mc13[col[3]];
+        result[2] = mc13[col[0]] ^ mc9[col[1]] ^ mc14[col[2]] ^ mc11[col[3]];
+        result[3] = mc11[col[0]] ^ mc13[col[1]] ^ mc9[col[2]] ^ mc14[col[3]];
         return result;
     }
 
+    /**
+     * MixColumns on one column packed big-endian into an int (row 0 in the high byte).  Uses
+     * b0 = 2(a0 ^ a1) ^ a1 ^ a2 ^ a3 and its rotations, with all four xtimes done at once.
+     */
+    public static int mixColumn(int col) {
+        int r1 = Integer.rotateLeft(col, 8);
+        int r2 = Integer.rotateLeft(col, 16);
+        int r3 = Integer.rotateLeft(col, 24);
+        return xtime4(col ^ r1) ^ r1 ^ r2 ^ r3;
+    }
+
+    /**
+     * InvMixColumns on a packed column.  Adding 4(a0 ^ a2) to rows 0 and 2 and 4(a1 ^ a3) to rows 1 and 3 turns
+     * the inverse matrix into the forward one.
+     */
+    public static int invMixColumn(int col) {
+        int t = xtime4(xtime4(col ^ Integer.rotateLeft(col, 16)));
+        return mixColumn(col ^ t);
+    }
+
+    // Multiplies each of the four packed bytes by x
+    private static int xtime4(int w) {
+        return ((w & 0x7F7F7F7F) << 1) ^ (((w >>> 7) & 0x01010101) * 0x1B);
+    }
+
     private static int gfMul(int a, int b) {
         int p = 0;
         int hiBitSet;
@@ -41,4 +102,4 @@ public class MixCols {
         }
         return p & 0xFF;
     }
-}
\ No newline at end of file
+}
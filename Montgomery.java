@@ -0,0 +1,382 @@
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * <h1>Montgomery</h1>
+ * <p>Modular exponentiation for one odd modulus.  The constructor does the per-modulus work once (R mod n,
+ * R<sup>2</sup> mod n and n' = -n<sup>-1</sup> mod 2<sup>64</sup>, with R = 2<sup>64k</sup> for a k-word
+ * modulus), so every later exponentiation is pure word arithmetic: Montgomery products and squares on
+ * little-endian long arrays, driven by a sliding window over the exponent.  Contexts are immutable and can be
+ * shared between threads.</p>
+ * <p>For a base used once, {@link #pow} is still several times slower than BigInteger.modPow, whose products
+ * are HotSpot intrinsics, so a context pays off only through {@link FixedBase}, which spends
+ * the squarings once for a base that is raised to many exponents.</p>
+ */
+public final class Montgomery {
+    private final BigInteger modulus;
+    private final int len;
+    private final long[] n;
+    private final long nPrime;
+    private final long[] one; // R mod n, 1 in Montgomery form
+    private final long[] rSquared;
+
+    /**
+     * <h3>Montgomery Constructor</h3>
+     * @param modulus An odd modulus greater than 1
+     */
+    public Montgomery(BigInteger modulus) {
+        if (modulus.signum() <= 0 || !modulus.testBit(0) || modulus.equals(BigInteger.ONE)) {
+            throw new IllegalArgumentException("Modulus must be odd and greater than 1");
+        }
+        this.modulus = modulus;
+        this.len = (modulus.bitLength() + 63) >>> 6;
+        this.n = toWords(modulus, len);
+        long inverse = n[0]; // Correct to 3 bits for any odd n[0]; each Newton step doubles that
+        for (int i = 0; i < 5; i++) {
+            inverse *= 2 - n[0] * inverse;
+        }
+        this.nPrime = -inverse;
+        this.one = toWords(BigInteger.ONE.shiftLeft(64 * len).mod(modulus), len);
+        this.rSquared = toWords(BigInteger.ONE.shiftLeft(128 * len).mod(modulus), len);
+    }
+
+    public BigInteger getModulus() {
+        return modulus;
+    }
+
+    /**
+     * <h3>pow</h3>
+     * <p>Left-to-right sliding-window exponentiation over the odd powers of base, with the window width
+     * chosen from the exponent length.</p>
+     * @param base Any integer; it is reduced mod n first
+     * @param exponent The exponent; a negative one uses the inverse of base
+     * @return base<sup>exponent</sup> mod n
+     * @throws ArithmeticException If exponent is negative and base has no inverse mod n
+     */
+    public BigInteger pow(BigInteger base, BigInteger exponent) {
+        if (exponent.signum() < 0) {
+            return pow(base.modInverse(modulus), exponent.negate());
+        }
+        long[] t = new long[2 * len + 1];
+        int width = windowWidth(exponent.bitLength());
+        long[][] odd = new long[1 << (width - 1)][len]; // base^1, base^3, ..., base^(2^width - 1)
+        multiply(toWords(base.mod(modulus), len), rSquared, odd[0], t);
+        if (odd.length > 1) {
+            long[] square = new long[len];
+            square(odd[0], square, t);
+            for (int i = 1; i < odd.length; i++) {
+                multiply(odd[i - 1], square, odd[i], t);
+            }
+        }
+
+        long[] result = one.clone();
+        boolean started = false;
+        int i = exponent.bitLength() - 1;
+        while (i >= 0) {
+            if (!exponent.testBit(i)) {
+                if (started) {
+                    square(result, result, t);
+                }
+                i--;
+                continue;
+            }
+            int low = Math.max(i - width + 1, 0);
+            while (!exponent.testBit(low)) {
+                low++;
+            }
+            int window = 0;
+            for (int j = i; j >= low; j--) {
+                if (started) {
+                    square(result, result, t);
+                }
+                window = (window << 1) | (exponent.testBit(j) ? 1 : 0);
+            }
+            multiply(result, odd[window >>> 1], result, t);
+            started = true;
+            i = low - 1;
+        }
+
+        return fromMontgomery(result, t);
+    }
+
+    /**
+     * <h3>fixedBase</h3>
+     * <p>Precomputes base<sup>2<sup>5i</sup></sup> for every 5-bit digit position of an exponent of up to the
+     * given width, so that later powers of base cost only multiplications (see {@link FixedBase}).  Building
+     * the table takes as many squarings as one exponentiation; it holds bits / 5 numbers of the modulus
+     * size.</p>
+     * @param base Any integer; it is reduced mod n first
+     * @param bits The longest exponent the table covers
+     */
+    public FixedBase fixedBase(BigInteger base, int bits) {
+        return new FixedBase(base, bits);
+    }
+
+    /**
+     * <h1>FixedBase</h1>
+     * <p>Powers of one base by Yao's method.  With the exponent written in 5-bit digits
+     * e = sum d<sub>i</sub> 2<sup>5i</sup> and g<sub>i</sub> = base<sup>2<sup>5i</sup></sup> taken from the
+     * table, base<sup>e</sup> = prod<sub>d = 31..1</sub> (prod<sub>d<sub>i</sub> &ge; d</sub> g<sub>i</sub>):
+     * a running product picks up each g<sub>i</sub> when d reaches its digit and is multiplied into the result
+     * once per d.  That is one multiplication per nonzero digit plus at most 31, against one squaring per
+     * exponent bit for {@link #pow}.  Instances are immutable and can be shared between threads.</p>
+     */
+    public final class FixedBase {
+        private static final int WIDTH = 5;
+
+        private final BigInteger base;
+        private final int bits;
+        private final long[][] powers; // powers[i] = base^(2^(WIDTH * i)) in Montgomery form
+
+        private FixedBase(BigInteger base, int bits) {
+            if (bits < 1) {
+                throw new IllegalArgumentException("Exponent width must be positive");
+            }
+            this.base = base;
+            this.bits = bits;
+            this.powers = new long[(bits + WIDTH - 1) / WIDTH][];
+            long[] t = new long[2 * len + 1];
+            long[] power = new long[len];
+            multiply(toWords(base.mod(modulus), len), rSquared, power, t);
+            powers[0] = power.clone();
+            for (int i = 1; i < powers.length; i++) {
+                for (int k = 0; k < WIDTH; k++) {
+                    square(power, power, t);
+                }
+                powers[i] = power.clone();
+            }
+        }
+
+        /**
+         * <h3>pow</h3>
+         * @param exponent The exponent; one that is negative or longer than the table falls back to
+         * {@link Montgomery#pow}
+         * @return base<sup>exponent</sup> mod n
+         */
+        public BigInteger pow(BigInteger exponent) {
+            if (exponent.signum() < 0 || exponent.bitLength() > bits) {
+                return Montgomery.this.pow(base, exponent);
+            }
+            int[] digits = new int[powers.length];
+            long[] words = toWords(exponent, (powers.length * WIDTH + 63) >>> 6);
+            for (int i = 0; i < digits.length; i++) {
+                int bit = WIDTH * i;
+                long digit = words[bit >>> 6] >>> (bit & 63);
+                if ((bit & 63) > 64 - WIDTH && (bit >>> 6) + 1 < words.length) {
+                    digit |= words[(bit >>> 6) + 1] << (64 - (bit & 63));
+                }
+                digits[i] = (int) (digit & ((1 << WIDTH) - 1));
+            }
+
+            long[] t = new long[2 * len + 1];
+            long[] result = one.clone();
+            long[] running = null; // The product of g_i over the digits seen so far; null while that is 1
+            for (int d = (1 << WIDTH) - 1; d > 0; d--) {
+                for (int i = 0; i < digits.length; i++) {
+                    if (digits[i] == d) {
+                        if (running == null) {
+                            running = powers[i].clone();
+                        } else {
+                            multiply(running, powers[i], running, t);
+                        }
+                    }
+                }
+                if (running != null) {
+                    multiply(result, running, result, t);
+                }
+            }
+            return fromMontgomery(result, t);
+        }
+    }
+
+    // The ordinary value of x, which is in Montgomery form; overwrites x
+    private BigInteger fromMontgomery(long[] x, long[] t) {
+        long[] unit = new long[len];
+        unit[0] = 1;
+        multiply(x, unit, x, t);
+        return fromWords(x);
+    }
+
+    // Window widths as in BigInteger.oddModPow: the width whose table cost stops paying for itself
+    private static int windowWidth(int bits) {
+        if (bits <= 7) {
+            return 1;
+        } else if (bits <= 25) {
+            return 2;
+        } else if (bits <= 81) {
+            return 3;
+        } else if (bits <= 241) {
+            return 4;
+        } else if (bits <= 673) {
+            return 5;
+        } else if (bits <= 1793) {
+            return 6;
+        }
+        return 7;
+    }
+
+    /*
+     * out = a * b * R^-1 mod n by coarsely integrated operand scanning: each word of b is multiplied in and
+     * one word is reduced away in the same pass.  a and b must be below n; out may be either of them.
+     * t is 2 * len + 1 words of scratch, of which this uses len + 2.
+     */
+    private void multiply(long[] a, long[] b, long[] out, long[] t) {
+        int len = this.len;
+        long[] n = this.n;
+        Arrays.fill(t, 0, len + 2, 0);
+        for (int i = 0; i < len; i++) {
+            long bi = b[i];
+            long carry = 0;
+            for (int j = 0; j < len; j++) {
+                long low = a[j] * bi;
+                long high = unsignedMultiplyHigh(a[j], bi);
+                long sum = t[j] + low;
+                high += Long.compareUnsigned(sum, low) < 0 ? 1 : 0;
+                sum += carry;
+                high += Long.compareUnsigned(sum, carry) < 0 ? 1 : 0;
+                t[j] = sum;
+                carry = high;
+            }
+            long sum = t[len] + carry;
+            t[len + 1] = Long.compareUnsigned(sum, carry) < 0 ? 1 : 0;
+            t[len] = sum;
+
+            long m = t[0] * nPrime;
+            long low = m * n[0];
+            carry = unsignedMultiplyHigh(m, n[0]) + (Long.compareUnsigned(t[0] + low, low) < 0 ? 1 : 0);
+            for (int j = 1; j < len; j++) {
+                low = m * n[j];
+                long high = unsignedMultiplyHigh(m, n[j]);
+                sum = t[j] + low;
+                high += Long.compareUnsigned(sum, low) < 0 ? 1 : 0;
+                sum += carry;
+                high += Long.compareUnsigned(sum, carry) < 0 ? 1 : 0;
+                t[j - 1] = sum;
+                carry = high;
+            }
+            sum = t[len] + carry;
+            t[len - 1] = sum;
+            t[len] = t[len + 1] + (Long.compareUnsigned(sum, carry) < 0 ? 1 : 0);
+        }
+        reduceOnce(t, 0, t[len], out);
+    }
+
+    /*
+     * out = a * a * R^-1 mod n: the full square with each cross product computed once and doubled, then len
+     * word-by-word Montgomery reductions.  About three quarters of the word products of multiply.
+     */
+    private void square(long[] a, long[] out, long[] t) {
+        int len = this.len;
+        long[] n = this.n;
+        Arrays.fill(t, 0);
+        for (int i = 0; i < len - 1; i++) {
+            long ai = a[i];
+            long carry = 0;
+            for (int j = i + 1; j < len; j++) {
+                long low = ai * a[j];
+                long high = unsignedMultiplyHigh(ai, a[j]);
+                long sum = t[i + j] + low;
+                high += Long.compareUnsigned(sum, low) < 0 ? 1 : 0;
+                sum += carry;
+                high += Long.compareUnsigned(sum, carry) < 0 ? 1 : 0;
+                t[i + j] = sum;
+                carry = high;
+            }
+            t[i + len] = carry;
+        }
+        long shifted = 0;
+        long carry = 0;
+        for (int i = 0; i < len; i++) {
+            long low = a[i] * a[i];
+            long high = unsignedMultiplyHigh(a[i], a[i]);
+            long even = (t[2 * i] << 1) | shifted;
+            long odd = (t[2 * i + 1] << 1) | (t[2 * i] >>> 63);
+            shifted = t[2 * i + 1] >>> 63;
+            long sum = even + low;
+            long next = Long.compareUnsigned(sum, low) < 0 ? 1 : 0;
+            sum += carry;
+            next += Long.compareUnsigned(sum, carry) < 0 ? 1 : 0;
+            t[2 * i] = sum;
+            sum = odd + high;
+            long over = Long.compareUnsigned(sum, high) < 0 ? 1 : 0;
+            sum += next;
+            over += Long.compareUnsigned(sum, next) < 0 ? 1 : 0;
+            t[2 * i + 1] = sum;
+            carry = over;
+        }
+
+        long extra = 0;
+        for (int i = 0; i < len; i++) {
+            long m = t[i] * nPrime;
+            carry = 0;
+            for (int j = 0; j < len; j++) {
+                long low = m * n[j];
+                long high = unsignedMultiplyHigh(m, n[j]);
+                long sum = t[i + j] + low;
+                high += Long.compareUnsigned(sum, low) < 0 ? 1 : 0;
+                sum += carry;
+                high += Long.compareUnsigned(sum, carry) < 0 ? 1 : 0;
+                t[i + j] = sum;
+                carry = high;
+            }
+            long sum = t[i + len] + carry;
+            long over = Long.compareUnsigned(sum, carry) < 0 ? 1 : 0;
+            sum += extra;
+            over += Long.compareUnsigned(sum, extra) < 0 ? 1 : 0;
+            t[i + len] = sum;
+            extra = over;
+        }
+        reduceOnce(t, len, extra, out);
+    }
+
+    // out = the len words of t from off, with top word top, minus n if that is at least n (it is below 2n)
+    private void reduceOnce(long[] t, int off, long top, long[] out) {
+        int len = this.len;
+        long[] n = this.n;
+        boolean subtract = top != 0;
+        if (!subtract) {
+            subtract = true;
+            for (int j = len - 1; j >= 0; j--) {
+                if (t[off + j] != n[j]) {
+                    subtract = Long.compareUnsigned(t[off + j], n[j]) > 0;
+                    break;
+                }
+            }
+        }
+        if (subtract) {
+            long borrow = 0;
+            for (int j = 0; j < len; j++) {
+                long x = t[off + j];
+                out[j] = x - n[j] - borrow;
+                borrow = Long.compareUnsigned(x, n[j]) < 0 || (borrow != 0 && x == n[j]) ? 1 : 0;
+            }
+        } else {
+            System.arraycopy(t, off, out, 0, len);
+        }
+    }
+
+    // The high word of the unsigned 128-bit product, from the signed one
+    private static long unsignedMultiplyHigh(long a, long b) {
+        return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+    }
+
+    private static long[] toWords(BigInteger value, int len) {
+        byte[] bytes = value.toByteArray();
+        long[] words = new long[len];
+        for (int i = 0, k = bytes.length - 1; k >= 0 && i < 8 * len; i++, k--) {
+            words[i >>> 3] |= (bytes[k] & 0xFFL) << (8 * (i & 7));
+        }
+        return words;
+    }
+
+    private static BigInteger fromWords(long[] words) {
+        byte[] bytes = new byte[8 * words.length];
+        for (int i = 0; i < words.length; i++) {
+            long w = words[words.length - 1 - i];
+            for (int k = 0; k < 8; k++) {
+                bytes[8 * i + k] = (byte) (w >>> (56 - 8 * k));
+            }
+        }
+        return new BigInteger(1, bytes);
+    }
+}
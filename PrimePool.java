@@ -0,0 +1,218 @@
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <h1>PrimePool</h1>
+ * <p>Keeps primes and safe primes of each requested bit width generated ahead of time, so that {@link RSA}
+ * and {@link DHE} constructors do not wait for a prime search.  A width gets its own shelf the first time it is
+ * asked for (or when it is registered).  One background daemon thread tops a shelf up to the high watermark
+ * whenever it has dropped to the low watermark.  A request that finds its shelf empty generates a prime on the
+ * calling thread instead, so the pool only ever removes waiting.</p>
+ * <p>The filler asks for minimum priority, but that is only a hint: on Linux the JVM ignores thread priorities
+ * by default, so while a shelf refills the filler takes a full core like any other thread.  Nothing uses a pool
+ * unless it is handed one, so a process opts in by passing {@link #shared()} or its own pool to the
+ * {@link RSA} and {@link DHE} constructors that take one, and sizes the watermarks for the spare CPU it
+ * has.</p>
+ * <p>Each prime is handed out once.</p>
+ */
+public class PrimePool implements AutoCloseable {
+    private static final PrimePool SHARED = new PrimePool(1, 4);
+    private static final int CHECKS = 10;
+
+    private final int lowWatermark;
+    private final int highWatermark;
+    private final Map<Long, Shelf> shelves = new ConcurrentHashMap<>();
+    private final ForkJoinPool inline = new ForkJoinPool(1); // Parallelism 1: searches run on the filler itself
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong generated = new AtomicLong();
+    private Thread filler;
+    private boolean closed;
+
+    /**
+     * <h3>PrimePool Constructor</h3>
+     * @param lowWatermark Refilling starts when a shelf holds this many primes or fewer
+     * @param highWatermark Refilling stops when a shelf holds this many
+     */
+    public PrimePool(int lowWatermark, int highWatermark) {
+        if (lowWatermark < 0 || highWatermark <= lowWatermark) {
+            throw new IllegalArgumentException("Watermarks must satisfy 0 <= low < high");
+        }
+        this.lowWatermark = lowWatermark;
+        this.highWatermark = highWatermark;
+    }
+
+    /**
+     * <h3>shared</h3>
+     * @return A process-wide pool that refills each shelf to 4 primes once it is down to 1
+     */
+    public static PrimePool shared() {
+        return SHARED;
+    }
+
+    /**
+     * <h3>prime</h3>
+     * @return A probable prime of exactly bits bits, from the shelf if one is ready
+     */
+    public BigInteger prime(int bits) {
+        return take(bits, false);
+    }
+
+    /**
+     * <h3>safePrime</h3>
+     * @return A probable safe prime of exactly bits bits, from the shelf if one is ready
+     */
+    public BigInteger safePrime(int bits) {
+        return take(bits, true);
+    }
+
+    /**
+     * <h3>register</h3>
+     * <p>Starts filling the shelf for primes of the given width before anyone asks for one.</p>
+     */
+    public void register(int bits) {
+        shelf(bits, false);
+        wake();
+    }
+
+    public void registerSafe(int bits) {
+        shelf(bits, true);
+        wake();
+    }
+
+    public int available(int bits) {
+        Shelf shelf = shelves.get(key(bits, false));
+        return shelf == null ? 0 : shelf.size.get();
+    }
+
+    public int availableSafe(int bits) {
+        Shelf shelf = shelves.get(key(bits, true));
+        return shelf == null ? 0 : shelf.size.get();
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public long generated() {
+        return generated.get();
+    }
+
+    /**
+     * <h3>close</h3>
+     * <p>Stops the background thread once it finishes the prime in hand.  Requests after this that find an
+     * empty shelf generate synchronously.</p>
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (filler != null) {
+            filler.interrupt();
+        }
+        inline.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PrimePool[shelves=%d, hits=%d, misses=%d, generated=%d]",
+                shelves.size(), hits(), misses(), generated());
+    }
+
+    private BigInteger take(int bits, boolean safe) {
+        Shelf shelf = shelf(bits, safe);
+        BigInteger prime = shelf.primes.poll();
+        if (prime != null) {
+            shelf.size.decrementAndGet();
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        if (shelf.size.get() <= lowWatermark) {
+            wake();
+        }
+        return prime != null ? prime : generate(bits, safe, ForkJoinPool.commonPool());
+    }
+
+    private Shelf shelf(int bits, boolean safe) {
+        if (bits < (safe ? 3 : 2)) {
+            throw new IllegalArgumentException("Too few bits for a prime: " + bits);
+        }
+        return shelves.computeIfAbsent(key(bits, safe), k -> new Shelf(bits, safe));
+    }
+
+    private static long key(int bits, boolean safe) {
+        return 2L * bits + (safe ? 1 : 0);
+    }
+
+    private static BigInteger generate(int bits, boolean safe, ForkJoinPool pool) {
+        return safe ? Crypto.getSafePrime(bits, pool) : Crypto.getPrime(bits - 1, bits, CHECKS, pool);
+    }
+
+    // Starts the filler on first use and tells it that a shelf may need refilling
+    private synchronized void wake() {
+        if (closed) {
+            return;
+        }
+        if (filler == null) {
+            filler = new Thread(this::fill, "prime-pool");
+            filler.setDaemon(true);
+            filler.setPriority(Thread.MIN_PRIORITY);
+            filler.start();
+        }
+        notifyAll();
+    }
+
+    private void fill() {
+        try {
+            while (true) {
+                Shelf shelf = next();
+                shelf.primes.add(generate(shelf.bits, shelf.safe, inline));
+                shelf.size.incrementAndGet();
+                generated.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            // Closed
+        }
+    }
+
+    // Waits for a shelf to refill: one at or below the low watermark, or one still on its way to the high one
+    private synchronized Shelf next() throws InterruptedException {
+        while (!closed) {
+            for (Shelf shelf : shelves.values()) {
+                int size = shelf.size.get();
+                if (size <= lowWatermark) {
+                    shelf.refilling = true;
+                } else if (size >= highWatermark) {
+                    shelf.refilling = false;
+                }
+                if (shelf.refilling) {
+                    return shelf;
+                }
+            }
+            wait();
+        }
+        throw new InterruptedException();
+    }
+
+    private static final class Shelf {
+        final int bits;
+        final boolean safe;
+        final ConcurrentLinkedQueue<BigInteger> primes = new ConcurrentLinkedQueue<>();
+        final AtomicInteger size = new AtomicInteger(); // ConcurrentLinkedQueue.size() walks the queue
+        boolean refilling; // Guarded by the pool
+
+        Shelf(int bits, boolean safe) {
+            this.bits = bits;
+            this.safe = safe;
+        }
+    }
+}
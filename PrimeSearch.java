@@ -0,0 +1,169 @@
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+/**
+ * <h1>PrimeSearch</h1>
+ * <p>Random prime search by incremental sieving.  One random odd start is reduced by every
+ * {@link SmallPrimes} prime once; after that each window of consecutive odd candidates is sieved from those
+ * residues, which move on to the next window with one addition and remainder per prime.  The survivors of a
+ * window go to Miller-Rabin on a fork-join pool, and the workers stop taking candidates as soon as one of
+ * them finds a prime.  Safe primes use the same search with a sieve over both q and 2q + 1.</p>
+ */
+final class PrimeSearch {
+    private PrimeSearch() {
+    }
+
+    /**
+     * <h3>find</h3>
+     * @return A probable prime with more than minBits and at most maxBits bits
+     */
+    static BigInteger find(int minBits, int maxBits, int numChecks, ForkJoinPool pool) {
+        if (minBits < 19) {
+            return findSmall(minBits, maxBits, numChecks); // The window could contain the sieving primes
+        }
+        int window = Math.max(1024, 2 * maxBits); // Several expected gaps between primes, in odd steps
+        return search(minBits, maxBits, window, false, q -> Crypto.millerRabin(q, numChecks), pool);
+    }
+
+    /**
+     * <h3>findSafe</h3>
+     * <p>Searches for q with 2q + 1 prime.  The sieve strikes out q with a small factor and q with 2q + 1
+     * divisible by one, so only about one candidate in a hundred reaches a test.  Each survivor gets a single
+     * base-2 Fermat test on 2q + 1 first, which rejects nearly all of them for one exponentiation, and only
+     * then Miller-Rabin on q.  With q prime and 2<sup>2q</sup> = 1 mod 2q + 1, Pocklington's criterion
+     * makes 2q + 1 prime (gcd(2<sup>2</sup> - 1, 2q + 1) = 1 as the sieve removed 3), so it needs no further
+     * rounds.</p>
+     * @return A probable safe prime of exactly bits bits
+     */
+    static BigInteger findSafe(int bits, int numChecks, ForkJoinPool pool) {
+        BigInteger q;
+        if (bits < 21) {
+            do {
+                q = findSmall(bits - 2, bits - 1, numChecks);
+            } while (!Crypto.checkPrime(q.shiftLeft(1).add(BigInteger.ONE), numChecks));
+        } else {
+            Predicate<BigInteger> safe = candidate -> {
+                BigInteger p = candidate.shiftLeft(1).add(BigInteger.ONE);
+                return BigInteger.TWO.modPow(p.subtract(BigInteger.ONE), p).equals(BigInteger.ONE)
+                        && Crypto.millerRabin(candidate, numChecks);
+            };
+            q = search(bits - 2, bits - 1, 1 << 16, true, safe, pool);
+        }
+        return q.shiftLeft(1).add(BigInteger.ONE);
+    }
+
+    /*
+     * Sieves windows of odd candidates from a random odd start and returns the first survivor that passes
+     * test.  With safe set, candidates q with 2q + 1 divisible by a small prime are struck out as well.
+     */
+    private static BigInteger search(int minBits, int maxBits, int window, boolean safe, Predicate<BigInteger> test,
+                                     ForkJoinPool pool) {
+        BigInteger limit = BigInteger.ONE.shiftLeft(maxBits);
+        while (true) {
+            BigInteger base = Crypto.getRandom(minBits, maxBits).setBit(0);
+            int[] residues = SmallPrimes.residues(base);
+            while (true) {
+                BigInteger room = limit.subtract(base).add(BigInteger.ONE).shiftRight(1); // Odd values below limit
+                int candidates = room.compareTo(BigInteger.valueOf(window)) >= 0 ? window : room.intValue();
+                if (candidates <= 0) {
+                    break; // Ran past maxBits; start again elsewhere
+                }
+                int[] survivors = sieve(residues, candidates, safe);
+                BigInteger prime = test(base, survivors, test, pool);
+                if (prime != null) {
+                    return prime;
+                }
+                if (candidates < window) {
+                    break;
+                }
+                advance(residues, window);
+                base = base.add(BigInteger.valueOf(2L * window));
+            }
+        }
+    }
+
+    // The offsets k < candidates for which base + 2k has no small factor, given residues = base mod PRIMES
+    private static int[] sieve(int[] residues, int candidates, boolean safe) {
+        int[] primes = SmallPrimes.PRIMES;
+        boolean[] composite = new boolean[candidates];
+        for (int i = 0; i < primes.length; i++) {
+            int p = primes[i];
+            long half = (p + 1) >>> 1; // 1 / 2 mod p
+            // base + 2k = 0 (mod p) for k = -base / 2 = (p - r) / 2 (mod p)
+            strike(composite, (p - residues[i]) % p * half % p, p);
+            if (safe) {
+                // 2(base + 2k) + 1 = 0 (mod p) for base + 2k = (p - 1) / 2, k = ((p - 1) / 2 - r) / 2 (mod p)
+                strike(composite, ((p - 1) / 2 - residues[i] + p) % p * half % p, p);
+            }
+        }
+        int[] survivors = new int[candidates];
+        int count = 0;
+        for (int k = 0; k < candidates; k++) {
+            if (!composite[k]) {
+                survivors[count++] = k;
+            }
+        }
+        return Arrays.copyOf(survivors, count);
+    }
+
+    private static void strike(boolean[] composite, long first, int step) {
+        for (long k = first; k < composite.length; k += step) {
+            composite[(int) k] = true;
+        }
+    }
+
+    // Moves the residues from base to base + 2 * window
+    private static void advance(int[] residues, int window) {
+        int[] primes = SmallPrimes.PRIMES;
+        for (int i = 0; i < primes.length; i++) {
+            residues[i] = (int) ((residues[i] + 2L * window) % primes[i]);
+        }
+    }
+
+    /*
+     * test on base + 2k for the surviving offsets, in parallel.  Every worker takes the next untested offset
+     * until the offsets run out or some worker has found a candidate that passes.
+     */
+    private static BigInteger test(BigInteger base, int[] survivors, Predicate<BigInteger> test, ForkJoinPool pool) {
+        AtomicInteger next = new AtomicInteger();
+        AtomicReference<BigInteger> found = new AtomicReference<>();
+        Runnable worker = () -> {
+            int i;
+            while (found.get() == null && (i = next.getAndIncrement()) < survivors.length) {
+                BigInteger candidate = base.add(BigInteger.valueOf(2L * survivors[i]));
+                if (test.test(candidate)) {
+                    found.compareAndSet(null, candidate);
+                }
+            }
+        };
+        int workers = Math.min(pool.getParallelism(), survivors.length);
+        if (workers <= 1) {
+            worker.run();
+            return found.get();
+        }
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            tasks.add(pool.submit(worker));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+        return found.get();
+    }
+
+    // Plain rejection sampling, for ranges that reach down among the sieving primes themselves
+    private static BigInteger findSmall(int minBits, int maxBits, int numChecks) {
+        BigInteger p = Crypto.getRandom(minBits, maxBits);
+        while (!Crypto.checkPrime(p, numChecks)) {
+            p = Crypto.getRandom(minBits, maxBits);
+        }
+        return p;
+    }
+}
@@ -1,4 +1,13 @@
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntFunction;
+import java.util.function.UnaryOperator;
 
 /**
  * <h1>RSA</h1>
@@ -9,56 +18,215 @@ public class RSA {
     /**
      * <h3>p</h3>
      * <p>One of the two primes used to generate n</p>
-     * <p><b>Do not leave this public</b></p>
      */
-    public BigInteger p;
-    // TODO
+    private final BigInteger p;
 
     /**
      * <h3>q</h3>
      * <p>One of the two primes used to generate n</p>
-     * <p><b>Do not leave this public</b></p>
      */
-    public BigInteger q;
-    // TODO
+    private final BigInteger q;
 
     /**
      * <h3>phi</h3>
      * <p>The result of (p-1)(q-1)</p>
-     * <p><b>Do not leave this public</b></p>
      */
-    public BigInteger phi;
-    // TODO
+    private final BigInteger phi;
 
     /**
      * <h3>n</h3>
      * <p>The result of p*q</p>
      */
-    private BigInteger n;
+    private final BigInteger n;
 
     /**
      * <h3>e</h3>
      * <p>Any number which is co-prime with n and one of two values (along with n) which make up the public key.</p>
      */
-    private BigInteger e;
+    private final BigInteger e;
 
     /**
      * <h3>d</h3>
      * <p>The modular inverse of e and one of two values (along with n) which make up the private key.</p>
-     * <p><b>Do not leave this public</b></p>
      */
-    public BigInteger d;
-    // TODO
+    private final BigInteger d;
+
+    /**
+     * <h3>PUBLIC_EXPONENT</h3>
+     * <p>The public exponent e, F4 = 2<sup>16</sup> + 1: prime, and only 17 bits, so public-key operations are
+     * 16 squarings and one multiplication.</p>
+     */
+    private static final BigInteger PUBLIC_EXPONENT = BigInteger.valueOf(65537);
+
+    // The smallest prime width accepted, which leaves every key room to encrypt at least two bytes per block
+    private static final int MIN_PRIME_BITS = 16;
+
+    /**
+     * <h3>dP, dQ, qInv</h3>
+     * <p>The CRT form of the private key: d mod (p - 1), d mod (q - 1) and q<sup>-1</sup> mod p.</p>
+     */
+    private final BigInteger dP;
+    private final BigInteger dQ;
+    private final BigInteger qInv;
+
+    /**
+     * <h3>others</h3>
+     * <p>The primes after p and q of a multi-prime key, in the order they are recombined; empty for a two-prime
+     * key.</p>
+     */
+    private final OtherPrime[] others;
 
     /**
      * <h3>RSA Constructor</h3>
      * <p>The constructor for the RSA class.</p>
      * <p>Accepts an int value indicating the desired bit width of the p and q parameters.</p>
      * <p>Generates random p and q, then from those derives n and phi</p>
-     * @param bits The number of bits (bit width) desired for the p and q values.
+     * <p>The primes are searched for on the calling thread and the common fork-join pool; no {@link PrimePool} is
+     * involved unless one is passed in.</p>
+     * @param bits The number of bits (bit width) desired for the p and q values, at least 16.
      */
     public RSA(int bits) {
-        // TODO
+        this(bits, 2);
+    }
+
+    /**
+     * <h3>RSA Constructor</h3>
+     * <p>As {@link #RSA(int)}, taking p and q from the given pool when it has them ready, such as
+     * {@link PrimePool#shared()}.</p>
+     */
+    public RSA(int bits, PrimePool pool) {
+        this(bits, 2, pool);
+    }
+
+    /**
+     * <h3>RSA Constructor</h3>
+     * <p>A multi-prime key (RFC 8017, section 3): n is the product of the given number of primes instead of
+     * two, with the same 2 * bits bits as {@link #RSA(int)} would give it.  The primes are correspondingly
+     * smaller and are generated in parallel, and each private-key operation is one small exponentiation per
+     * prime.  The public key is the same [e, n] as for two primes.</p>
+     * @param bits Half the bit width of n
+     * @param primes The number of primes, 2 to 4
+     * @throws IllegalArgumentException If the primes would be narrower than 16 bits
+     */
+    public RSA(int bits, int primes) {
+        this(bits, primes, RSA::searchPrime);
+    }
+
+    /**
+     * <h3>RSA Constructor</h3>
+     * <p>As {@link #RSA(int, int)}, taking the primes from the given pool when it has them ready.</p>
+     */
+    public RSA(int bits, int primes, PrimePool pool) {
+        this(bits, primes, pool::prime);
+    }
+
+    // source gives a probable prime of exactly the requested bit width
+    private RSA(int bits, int primes, IntFunction<BigInteger> source) {
+        if (primes < 2 || primes > 4) {
+            throw new IllegalArgumentException("RSA keys use 2 to 4 primes");
+        }
+        if (2 * bits / primes < MIN_PRIME_BITS) {
+            throw new IllegalArgumentException("Too few bits for " + primes + " primes of at least " + MIN_PRIME_BITS
+                    + " bits: " + bits);
+        }
+        BigInteger[] factors = generatePrimes(bits, primes, source);
+        this.e = PUBLIC_EXPONENT;
+        this.p = factors[0];
+        this.q = factors[1];
+        BigInteger n = BigInteger.ONE;
+        BigInteger phi = BigInteger.ONE;
+        for (BigInteger factor : factors) {
+            n = n.multiply(factor);
+            phi = phi.multiply(factor.subtract(BigInteger.ONE));
+        }
+        this.n = n;
+        this.phi = phi;
+        this.d = Crypto.modularInverse(e, phi);
+        this.dP = d.mod(p.subtract(BigInteger.ONE));
+        this.dQ = d.mod(q.subtract(BigInteger.ONE));
+        this.qInv = q.modInverse(p);
+        this.others = new OtherPrime[primes - 2];
+        BigInteger product = p.multiply(q);
+        for (int i = 2; i < primes; i++) {
+            BigInteger r = factors[i];
+            others[i - 2] = new OtherPrime(r, d.mod(r.subtract(BigInteger.ONE)), product.modInverse(r));
+            product = product.multiply(r);
+        }
+    }
+
+    /*
+     * count distinct primes whose bit widths differ by at most one and add up to 2 * bits, drawn in parallel.
+     * Their product can come out a bit or two short of 2 * bits; until it does not, the prime lying furthest
+     * below the top of its width is replaced, which keeps every prime uniformly drawn from its width.
+     */
+    private static BigInteger[] generatePrimes(int bits, int count, IntFunction<BigInteger> source) {
+        int[] widths = new int[count];
+        List<ForkJoinTask<BigInteger>> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int width = 2 * bits / count + (i < 2 * bits % count ? 1 : 0);
+            widths[i] = width;
+            tasks.add(fork(() -> generatePrime(width, source)));
+        }
+        BigInteger[] primes = new BigInteger[count];
+        for (int i = 0; i < count; i++) {
+            primes[i] = tasks.get(i).join();
+            replaceDuplicate(primes, i, widths[i], source);
+        }
+        while (product(primes).bitLength() < 2 * bits) {
+            int smallest = 0;
+            for (int i = 1; i < count; i++) {
+                // primes[i] / 2^widths[i] < primes[smallest] / 2^widths[smallest]
+                if (primes[i].shiftLeft(widths[smallest]).compareTo(primes[smallest].shiftLeft(widths[i])) < 0) {
+                    smallest = i;
+                }
+            }
+            primes[smallest] = generatePrime(widths[smallest], source);
+            replaceDuplicate(primes, smallest, widths[smallest], source);
+        }
+        return primes;
+    }
+
+    // Redraws primes[i] while it equals one of the others
+    private static void replaceDuplicate(BigInteger[] primes, int i, int width, IntFunction<BigInteger> source) {
+        for (int j = 0; j < primes.length; j++) {
+            if (j != i && primes[i].equals(primes[j])) {
+                primes[i] = generatePrime(width, source);
+                j = -1;
+            }
+        }
+    }
+
+    private static BigInteger product(BigInteger[] values) {
+        BigInteger product = BigInteger.ONE;
+        for (BigInteger value : values) {
+            product = product.multiply(value);
+        }
+        return product;
+    }
+
+    // A prime of exactly bits bits with gcd(e, prime - 1) = 1, so that e is invertible mod phi
+    private static BigInteger generatePrime(int bits, IntFunction<BigInteger> source) {
+        while (true) {
+            BigInteger prime = source.apply(bits);
+            if (!prime.subtract(BigInteger.ONE).mod(PUBLIC_EXPONENT).equals(BigInteger.ZERO)) {
+                return prime;
+            }
+        }
+    }
+
+    private static BigInteger searchPrime(int bits) {
+        return Crypto.getPrime(bits - 1, bits, 10);
+    }
+
+    // Starts work on the common pool when it has more than one worker, and otherwise does it right here
+    private static <T> ForkJoinTask<T> fork(Callable<T> work) {
+        ForkJoinTask<T> task = ForkJoinTask.adapt(work);
+        if (ForkJoinPool.getCommonPoolParallelism() > 1) {
+            ForkJoinPool.commonPool().execute(task);
+        } else {
+            task.invoke();
+        }
+        return task;
     }
 
     /**
@@ -70,6 +238,11 @@ public class RSA {
         return new BigInteger[] {e, n};
     }
 
+    // The private key [d, n], for checking the CRT operations within the package
+    BigInteger[] getPrivKey() {
+        return new BigInteger[] {d, n};
+    }
+
     /**
      * <h3>encrypt</h3>
      * <p>Accepts a message String and a public key and returns the encrypted message.</p>
@@ -78,8 +251,16 @@ public class RSA {
      * @return The result of encrypting the message using the given public key.
      */
     public String encrypt(String message, BigInteger[] pubKey) {
-        // TODO
-        return null;
+        return Hex.encode(encrypt(message.getBytes(StandardCharsets.UTF_8), pubKey));
+    }
+
+    /**
+     * <h3>encrypt</h3>
+     * <p>As {@link #encrypt(String, BigInteger[])} for raw bytes: one modulus-width block of ciphertext for
+     * every chunk of up to (modulus width - 2) bytes of message.</p>
+     */
+    public byte[] encrypt(byte[] message, BigInteger[] pubKey) {
+        return seal(message, pubKey[1], m -> m.modPow(pubKey[0], pubKey[1]));
     }
 
     /**
@@ -89,8 +270,15 @@ public class RSA {
      * @return The result of decrypting the message using the private key [d, n].
      */
     public String decrypt(String ciphertext) {
-        // TODO
-        return null;
+        return new String(decrypt(Hex.decode(ciphertext)), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * <h3>decrypt</h3>
+     * <p>As {@link #decrypt(String)} for ciphertext produced by {@link #encrypt(byte[], BigInteger[])}.</p>
+     */
+    public byte[] decrypt(byte[] ciphertext) {
+        return open(ciphertext, n, this::privateOperation);
     }
 
     /**
@@ -100,8 +288,7 @@ public class RSA {
      * @return The result of encrypting the message using the private key [d, n].
      */
     public String sign(String message) {
-        // TODO
-        return null;
+        return Hex.encode(seal(message.getBytes(StandardCharsets.UTF_8), n, this::privateOperation));
     }
 
     /**
@@ -112,8 +299,101 @@ public class RSA {
      * @return The result of decrypting the message using the given public key.
      */
     public String authenticate(String message, BigInteger[] pubKey) {
-        // TODO
-        return null;
+        return new String(open(Hex.decode(message), pubKey[1], s -> s.modPow(pubKey[0], pubKey[1])),
+                StandardCharsets.UTF_8);
+    }
+
+    /*
+     * x^d mod n by the Chinese remainder theorem (RFC 8017, section 5.1.2): x^dP mod p and x^dQ mod q, plus
+     * x^d_i mod r_i for each further prime, each a fraction of the size of x^d mod n.  All but the q
+     * exponentiation go to the common pool while this thread does that one, and Garner's formula puts the
+     * results back together one prime at a time.
+     */
+    private BigInteger privateOperation(BigInteger x) {
+        ForkJoinTask<BigInteger> mP = fork(() -> x.modPow(dP, p));
+        List<ForkJoinTask<BigInteger>> mOthers = new ArrayList<>(others.length);
+        for (OtherPrime other : others) {
+            mOthers.add(fork(() -> x.modPow(other.exponent, other.prime)));
+        }
+        BigInteger m = x.modPow(dQ, q);
+        m = m.add(qInv.multiply(mP.join().subtract(m)).mod(p).multiply(q));
+        BigInteger product = p.multiply(q);
+        for (int i = 0; i < others.length; i++) {
+            OtherPrime other = others[i];
+            BigInteger r = other.prime;
+            m = m.add(other.coefficient.multiply(mOthers.get(i).join().subtract(m)).mod(r).multiply(product));
+            product = product.multiply(r);
+        }
+        return m;
+    }
+
+    /*
+     * Message bytes are cut into chunks two bytes shorter than the modulus.  Each chunk gets a leading 0x01
+     * byte, which keeps its leading zeros and its value below the modulus, and is transformed on its own; the
+     * results are written at a fixed width, one modulus length per chunk.
+     */
+    private static byte[] seal(byte[] message, BigInteger modulus, UnaryOperator<BigInteger> operation) {
+        int width = (modulus.bitLength() + 7) / 8;
+        int chunk = width - 2;
+        if (chunk < 1) {
+            throw new IllegalArgumentException("Modulus too small to encrypt with");
+        }
+        byte[] out = new byte[(message.length + chunk - 1) / chunk * width];
+        for (int off = 0, at = 0; off < message.length; off += chunk, at += width) {
+            int length = Math.min(chunk, message.length - off);
+            byte[] block = new byte[length + 1];
+            block[0] = 1;
+            System.arraycopy(message, off, block, 1, length);
+            toFixedWidth(operation.apply(new BigInteger(1, block)), out, at, width);
+        }
+        return out;
+    }
+
+    private static byte[] open(byte[] data, BigInteger modulus, UnaryOperator<BigInteger> operation) {
+        int width = (modulus.bitLength() + 7) / 8;
+        if (data.length % width != 0) {
+            throw new IllegalArgumentException("Invalid ciphertext length");
+        }
+        byte[] message = new byte[data.length];
+        int length = 0;
+        for (int off = 0; off < data.length; off += width) {
+            byte[] block = new byte[width];
+            System.arraycopy(data, off, block, 0, width);
+            BigInteger value = new BigInteger(1, block);
+            if (value.compareTo(modulus) >= 0) {
+                throw new IllegalArgumentException("Invalid ciphertext block");
+            }
+            byte[] plain = operation.apply(value).toByteArray();
+            if (plain[0] != 1) {
+                throw new IllegalArgumentException("Ciphertext does not match this key");
+            }
+            System.arraycopy(plain, 1, message, length, plain.length - 1);
+            length += plain.length - 1;
+        }
+        return Arrays.copyOf(message, length);
+    }
+
+    // Writes the big-endian bytes of value to out at off, left-padded with zeros to width
+    private static void toFixedWidth(BigInteger value, byte[] out, int off, int width) {
+        byte[] bytes = value.toByteArray();
+        int copy = Math.min(bytes.length, width);
+        System.arraycopy(bytes, bytes.length - copy, out, off + width - copy, copy);
+    }
+
+    /*
+     * One of the primes r_i past the first two, as RFC 8017's OtherPrimeInfo: the prime itself, the
+     * exponent d mod (r_i - 1) and the coefficient (r_1 * ... * r_(i-1))^-1 mod r_i.
+     */
+    private static final class OtherPrime {
+        final BigInteger prime;
+        final BigInteger exponent;
+        final BigInteger coefficient;
+
+        OtherPrime(BigInteger prime, BigInteger exponent, BigInteger coefficient) {
+            this.prime = prime;
+            this.exponent = exponent;
+            this.coefficient = coefficient;
+        }
     }
 
     /**
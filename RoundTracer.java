@@ -0,0 +1,70 @@
+/**
+ * <h1>RoundTracer</h1>
+ * <p>Receives the intermediate AES state after every step of the cipher.  An {@link AES} instance without a
+ * tracer runs the table-driven engine and never calls back; attaching a tracer (see {@link AES#traced}) switches
+ * only that instance to the step-by-step reference implementation.</p>
+ * <p>States and round keys are 16-byte blocks in FIPS-197 input order, i.e. column by column.</p>
+ */
+public interface RoundTracer {
+
+    /**
+     * <h3>NONE</h3>
+     * <p>A tracer that records nothing.  AES treats it the same as having no tracer, so it costs nothing.</p>
+     */
+    RoundTracer NONE = (step, round, input, roundKey, output) -> { };
+
+    enum Step {
+        ADD_ROUND_KEY("Add Round Key"),
+        SUB_BYTES("Sub Bytes"),
+        SHIFT_ROWS("Shift Rows"),
+        MIX_COLUMNS("Mix Columns"),
+        INV_SUB_BYTES("Sub Bytes"),
+        INV_SHIFT_ROWS("Shift Rows"),
+        INV_MIX_COLUMNS("Mix Columns");
+
+        private final String label;
+
+        Step(String label) {
+            this.label = label;
+        }
+
+        /**
+         * The heading used in the debug output; inverse steps share the forward step's heading.
+         */
+        public String label() {
+            return label;
+        }
+    }
+
+    /**
+     * <h3>step</h3>
+     * <p>Called after every cipher step.</p>
+     * @param step The step that was applied
+     * @param round The round number, counted from 0 in both directions
+     * @param input The state before the step
+     * @param roundKey The round key for {@link Step#ADD_ROUND_KEY}, null for every other step
+     * @param output The state after the step
+     */
+    void step(Step step, int round, byte[] input, byte[] roundKey, byte[] output);
+
+    /**
+     * <h3>keySchedule</h3>
+     * <p>Called with the expanded key words w[0..43] before a traced message is processed.</p>
+     */
+    default void keySchedule(int[] words) {
+    }
+
+    /**
+     * <h3>message</h3>
+     * <p>Called with the labelled message values (key, plaintext, ciphertext) around a traced operation.</p>
+     */
+    default void message(String label, String value) {
+    }
+
+    /**
+     * <h3>flush</h3>
+     * <p>Called at the end of every traced operation.</p>
+     */
+    default void flush() {
+    }
+}
@@ -0,0 +1,126 @@
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * <h1>SmallPrimes</h1>
+ * <p>The odd primes below 2<sup>18</sup> (about 23,000 of them), sieved once when the class loads, and trial
+ * division against them.  Consecutive primes are grouped into products that fit in a long, so each group
+ * costs one BigInteger remainder and a few long remainders instead of a BigInteger division per prime.</p>
+ */
+final class SmallPrimes {
+    static final int LIMIT = 1 << 18;
+
+    /**
+     * <h3>PRIMES</h3>
+     * <p>The odd primes below {@link #LIMIT} in increasing order.  Do not modify.</p>
+     */
+    static final int[] PRIMES = sieve(LIMIT);
+
+    // PRODUCTS[g] is the product of PRIMES[GROUPS[g]] up to (excluding) PRIMES[GROUPS[g + 1]]
+    private static final long[] PRODUCTS;
+    private static final int[] GROUPS;
+
+    static {
+        long[] products = new long[PRIMES.length];
+        int[] groups = new int[PRIMES.length + 1];
+        int count = 0;
+        int i = 0;
+        while (i < PRIMES.length) {
+            groups[count] = i;
+            long product = 1;
+            while (i < PRIMES.length && product <= Long.MAX_VALUE / PRIMES[i]) {
+                product *= PRIMES[i++];
+            }
+            products[count++] = product;
+        }
+        groups[count] = PRIMES.length;
+        PRODUCTS = Arrays.copyOf(products, count);
+        GROUPS = Arrays.copyOf(groups, count + 1);
+    }
+
+    private SmallPrimes() {
+    }
+
+    /**
+     * <h3>trialPrimes</h3>
+     * <p>How many small primes are worth dividing by before Miller-Rabin on a number of the given size: four
+     * per bit, where dropping a few more candidates stops paying for the extra divisions.</p>
+     */
+    static int trialPrimes(int bits) {
+        return Math.min(PRIMES.length, 4 * bits);
+    }
+
+    /**
+     * <h3>hasSmallFactor</h3>
+     * @param n A number greater than 2
+     * @param count How many of the odd primes to try
+     * @return Whether n is even or divisible by one of the first count odd primes, other than n itself
+     */
+    static boolean hasSmallFactor(BigInteger n, int count) {
+        if (!n.testBit(0)) {
+            return true;
+        }
+        boolean small = n.bitLength() < 32;
+        for (int g = 0; g < PRODUCTS.length && GROUPS[g] < count; g++) {
+            long residue = n.mod(BigInteger.valueOf(PRODUCTS[g])).longValue();
+            int end = Math.min(GROUPS[g + 1], count);
+            for (int i = GROUPS[g]; i < end; i++) {
+                if (residue % PRIMES[i] == 0 && !(small && n.intValue() == PRIMES[i])) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * <h3>residues</h3>
+     * @return n mod PRIMES[i] for every small prime, one BigInteger remainder per group
+     */
+    static int[] residues(BigInteger n) {
+        int[] residues = new int[PRIMES.length];
+        for (int g = 0; g < PRODUCTS.length; g++) {
+            long residue = n.mod(BigInteger.valueOf(PRODUCTS[g])).longValue();
+            for (int i = GROUPS[g]; i < GROUPS[g + 1]; i++) {
+                residues[i] = (int) (residue % PRIMES[i]);
+            }
+        }
+        return residues;
+    }
+
+    /**
+     * <h3>isSmallPrime</h3>
+     * @return Whether n is below {@link #LIMIT}, so that it can be looked up, and prime
+     */
+    static boolean isSmallPrime(BigInteger n) {
+        if (n.bitLength() > 18) {
+            return false;
+        }
+        int value = n.intValue();
+        return value == 2 || Arrays.binarySearch(PRIMES, value) >= 0;
+    }
+
+    // Sieve of Eratosthenes over the odd numbers: index i stands for 2i + 1
+    private static int[] sieve(int limit) {
+        boolean[] composite = new boolean[limit / 2];
+        int count = 0;
+        for (int i = 1; i < composite.length; i++) {
+            if (composite[i]) {
+                continue;
+            }
+            count++;
+            long p = 2L * i + 1;
+            for (long m = p * p / 2; m < composite.length; m += p) {
+                composite[(int) m] = true;
+            }
+        }
+        int[] primes = new int[count];
+        int k = 0;
+        for (int i = 1; i < composite.length; i++) {
+            if (!composite[i]) {
+                primes[k++] = 2 * i + 1;
+            }
+        }
+        return primes;
+    }
+}
@@ -0,0 +1,74 @@
+import java.io.PrintStream;
+
+/**
+ * <h1>TextRoundTracer</h1>
+ * <p>Writes the trace in the format of "AES Debug.txt": a heading per step followed by the 4x4 input block, the
+ * round key for AddRoundKey, and the output block, one hex row per line.  Text is built in a local buffer with a
+ * lookup table and written to the target stream in large pieces rather than a format call per byte.</p>
+ */
+public class TextRoundTracer implements RoundTracer {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int FLUSH_THRESHOLD = 8192;
+
+    private final PrintStream out;
+    private final StringBuilder buffer = new StringBuilder(FLUSH_THRESHOLD + 256);
+
+    public TextRoundTracer(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public synchronized void step(Step step, int round, byte[] input, byte[] roundKey, byte[] output) {
+        buffer.append(step.label()).append('\n');
+        appendBlock(input);
+        if (roundKey != null) {
+            appendBlock(roundKey);
+        }
+        appendBlock(output);
+        if (buffer.length() >= FLUSH_THRESHOLD) {
+            flush();
+        }
+    }
+
+    @Override
+    public synchronized void keySchedule(int[] words) {
+        buffer.append("\nKey Schedule:\n");
+        for (int i = 0; i < words.length; i++) {
+            appendWord(words[i]);
+            if (i % 4 == 3) {
+                buffer.append('\n');
+            }
+        }
+        buffer.append('\n');
+    }
+
+    @Override
+    public synchronized void message(String label, String value) {
+        buffer.append(label).append(": ").append(value).append('\n');
+    }
+
+    @Override
+    public synchronized void flush() {
+        out.print(buffer);
+        out.flush();
+        buffer.setLength(0);
+    }
+
+    // Prints the block as four rows; byte r + 4c is row r, column c
+    private void appendBlock(byte[] block) {
+        for (int r = 0; r < 4; r++) {
+            for (int c = 0; c < 4; c++) {
+                int b = block[r + 4 * c] & 0xFF;
+                buffer.append(HEX[b >>> 4]).append(HEX[b & 0xF]);
+            }
+            buffer.append('\n');
+        }
+        buffer.append('\n');
+    }
+
+    private void appendWord(int word) {
+        for (int shift = 28; shift >= 0; shift -= 4) {
+            buffer.append(HEX[(word >>> shift) & 0xF]);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <h1>AESBenchmark</h1>
+ * <p>Encryption and decryption throughput for ECB and CBC at 16 B, 1 KB, 1 MB and 64 MB, through both the
+ * ByteBuffer API and the hex String API, for each bulk engine.  Scores are operations per second; multiply by
+ * size for bytes per second.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AESBenchmark {
+    private static final MethodHandle NEW_AES = Targets.constructor("AES", String.class, boolean.class);
+    private static final MethodHandle ENCRYPT_BUFFER =
+            Targets.method("AES", "encrypt", int.class, ByteBuffer.class, ByteBuffer.class, byte[].class);
+    private static final MethodHandle DECRYPT_BUFFER =
+            Targets.method("AES", "decrypt", int.class, ByteBuffer.class, ByteBuffer.class, byte[].class);
+    private static final MethodHandle ENCRYPT_STRING =
+            Targets.method("AES", "encrypt", String.class, String.class, boolean.class);
+    private static final MethodHandle DECRYPT_STRING =
+            Targets.method("AES", "decrypt", String.class, String.class, boolean.class);
+    private static final MethodHandle PADDED_LENGTH = Targets.staticMethod("AES", "paddedLength", int.class, int.class);
+
+    @Param({"16", "1024", "1048576", "67108864"})
+    public int size;
+
+    @Param({"ECB", "CBC"})
+    public String mode;
+
+    @Param({"table", "bitsliced"})
+    public String engine;
+
+    private Object aes;
+    private boolean cbc;
+    private byte[] iv;
+    private ByteBuffer plaintext;
+    private ByteBuffer ciphertext;
+    private ByteBuffer output;
+    private String text;
+    private String hexCiphertext;
+
+    @Setup
+    public void setup() throws Throwable {
+        System.setProperty("aes.engine", engine); // Read when the AES instance is created
+        aes = NEW_AES.invoke("Thats my Kung Fu", false);
+        cbc = mode.equals("CBC");
+        Random random = new Random(4380);
+        iv = cbc ? new byte[16] : null;
+        if (cbc) {
+            random.nextBytes(iv);
+        }
+
+        int padded = (int) PADDED_LENGTH.invoke(size);
+        byte[] data = new byte[size];
+        random.nextBytes(data);
+        plaintext = ByteBuffer.allocateDirect(size);
+        plaintext.put(data).flip();
+        ciphertext = ByteBuffer.allocateDirect(padded);
+        output = ByteBuffer.allocateDirect(padded);
+        int written = (int) ENCRYPT_BUFFER.invoke(aes, plaintext.duplicate(), ciphertext.duplicate(), iv);
+        ciphertext.limit(written);
+
+        char[] chars = new char[size];
+        for (int i = 0; i < size; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        text = new String(chars);
+        hexCiphertext = (String) ENCRYPT_STRING.invoke(aes, text, cbc);
+    }
+
+    @Benchmark
+    public int encryptBuffer() throws Throwable {
+        output.clear();
+        return (int) ENCRYPT_BUFFER.invoke(aes, plaintext.duplicate(), output, iv);
+    }
+
+    @Benchmark
+    public int decryptBuffer() throws Throwable {
+        output.clear();
+        return (int) DECRYPT_BUFFER.invoke(aes, ciphertext.duplicate(), output, iv);
+    }
+
+    @Benchmark
+    public String encryptString() throws Throwable {
+        return (String) ENCRYPT_STRING.invoke(aes, text, cbc);
+    }
+
+    @Benchmark
+    public String decryptString() throws Throwable {
+        return (String) DECRYPT_STRING.invoke(aes, hexCiphertext, cbc);
+    }
+}
@@ -0,0 +1,76 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <h1>DHEBenchmark</h1>
+ * <p>The per-handshake DHE operations (base, public value, shared key) for the 512-bit generator and
+ * 2048-bit prime used in DHE.main, plus parameter generation.  The constructor used takes no
+ * {@code PrimePool}, so parameter generation times a real safe-prime search and no filler thread runs
+ * beside the other benchmarks.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DHEBenchmark {
+    private static final MethodHandle NEW_DHE = Targets.constructor("DHE", int.class, int.class);
+    private static final MethodHandle GET_BASE = Targets.method("DHE", "getBase", BigInteger.class, int.class);
+    private static final MethodHandle GET_EXPONENT = Targets.method("DHE", "getExponent", BigInteger.class, BigInteger.class);
+    private static final MethodHandle GET_KEY =
+            Targets.method("DHE", "getKey", BigInteger.class, BigInteger.class, BigInteger.class);
+
+    private static final int G_BITS = 512;
+    private static final int P_BITS = 2048;
+
+    private Object dhe;
+    private BigInteger base;
+    private BigInteger peerExponent;
+
+    @Setup
+    public void setup() throws Throwable {
+        dhe = NEW_DHE.invoke(G_BITS, P_BITS);
+        base = (BigInteger) GET_BASE.invoke(dhe, G_BITS);
+        BigInteger peerBase = (BigInteger) GET_BASE.invoke(dhe, G_BITS);
+        peerExponent = (BigInteger) GET_EXPONENT.invoke(dhe, peerBase);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 3)
+    public Object parameterGeneration() throws Throwable {
+        return NEW_DHE.invoke(G_BITS, P_BITS);
+    }
+
+    @Benchmark
+    public BigInteger getBase() throws Throwable {
+        return (BigInteger) GET_BASE.invoke(dhe, G_BITS);
+    }
+
+    @Benchmark
+    public BigInteger getExponent() throws Throwable {
+        return (BigInteger) GET_EXPONENT.invoke(dhe, base);
+    }
+
+    @Benchmark
+    public BigInteger getKey() throws Throwable {
+        return (BigInteger) GET_KEY.invoke(dhe, base, peerExponent);
+    }
+}
@@ -0,0 +1,69 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <h1>ModPowBenchmark</h1>
+ * <p>Crypto.fastMod (a thin wrapper over BigInteger.modPow) and a reused Montgomery context against
+ * BigInteger.modPow, for a full-width exponent and an odd modulus of 1024 to 4096 bits.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModPowBenchmark {
+    private static final MethodHandle FAST_MOD =
+            Targets.staticMethod("Crypto", "fastMod", BigInteger.class, BigInteger.class, BigInteger.class, BigInteger.class);
+    private static final MethodHandle NEW_MONTGOMERY = Targets.constructor("Montgomery", BigInteger.class);
+    private static final MethodHandle POW =
+            Targets.method("Montgomery", "pow", BigInteger.class, BigInteger.class, BigInteger.class);
+
+    @Param({"1024", "2048", "3072", "4096"})
+    public int bits;
+
+    private BigInteger base;
+    private BigInteger exponent;
+    private BigInteger modulus;
+    private Object montgomery;
+
+    @Setup
+    public void setup() throws Throwable {
+        Random random = new Random(4380);
+        modulus = new BigInteger(bits, random).setBit(bits - 1).setBit(0);
+        base = new BigInteger(bits - 1, random);
+        exponent = new BigInteger(bits, random).setBit(bits - 1);
+        montgomery = NEW_MONTGOMERY.invoke(modulus);
+    }
+
+    @Benchmark
+    public BigInteger fastMod() throws Throwable {
+        return (BigInteger) FAST_MOD.invoke(base, exponent, modulus);
+    }
+
+    @Benchmark
+    public BigInteger montgomery() throws Throwable {
+        return (BigInteger) POW.invoke(montgomery, base, exponent);
+    }
+
+    @Benchmark
+    public BigInteger modPow() {
+        return base.modPow(exponent, modulus);
+    }
+}
@@ -0,0 +1,70 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <h1>PrimeBenchmark</h1>
+ * <p>Latency of Crypto.checkPrime on a known prime (the worst case, every round runs), and of
+ * Crypto.getPrime and Crypto.getSafePrime at the same width.  Prime generation is randomised, so it is
+ * measured in single-shot mode over several samples.</p>
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+public class PrimeBenchmark {
+    private static final MethodHandle CHECK_PRIME =
+            Targets.staticMethod("Crypto", "checkPrime", boolean.class, BigInteger.class, int.class);
+    private static final MethodHandle GET_PRIME =
+            Targets.staticMethod("Crypto", "getPrime", BigInteger.class, int.class, int.class, int.class);
+    private static final MethodHandle GET_SAFE_PRIME =
+            Targets.staticMethod("Crypto", "getSafePrime", BigInteger.class, int.class);
+
+    @Param({"512", "1024", "2048"})
+    public int bits;
+
+    private BigInteger prime;
+
+    @Setup
+    public void setup() {
+        prime = BigInteger.probablePrime(bits, new Random(4380));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 2, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public boolean checkPrime() throws Throwable {
+        return (boolean) CHECK_PRIME.invoke(prime, 10);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 10)
+    public BigInteger getPrime() throws Throwable {
+        return (BigInteger) GET_PRIME.invoke(bits - 1, bits, 10);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 3)
+    public BigInteger getSafePrime() throws Throwable {
+        return (BigInteger) GET_SAFE_PRIME.invoke(bits);
+    }
+}
@@ -0,0 +1,85 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <h1>RSABenchmark</h1>
+ * <p>Key generation and the four RSA message operations for p and q of the given bit width.  The constructor
+ * used takes no {@code PrimePool}, so key generation times a real prime search and no filler thread runs
+ * beside the other benchmarks.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RSABenchmark {
+    private static final MethodHandle NEW_RSA = Targets.constructor("RSA", int.class);
+    private static final MethodHandle GET_PUB_KEY = Targets.method("RSA", "getPubKey", BigInteger[].class);
+    private static final MethodHandle ENCRYPT = Targets.method("RSA", "encrypt", String.class, String.class, BigInteger[].class);
+    private static final MethodHandle DECRYPT = Targets.method("RSA", "decrypt", String.class, String.class);
+    private static final MethodHandle SIGN = Targets.method("RSA", "sign", String.class, String.class);
+    private static final MethodHandle AUTHENTICATE =
+            Targets.method("RSA", "authenticate", String.class, String.class, BigInteger[].class);
+
+    private static final String MESSAGE = "Two One Nine Two";
+
+    @Param({"1024", "2048"})
+    public int bits;
+
+    private Object rsa;
+    private BigInteger[] pubKey;
+    private String ciphertext;
+    private String signature;
+
+    @Setup
+    public void setup() throws Throwable {
+        rsa = NEW_RSA.invoke(bits);
+        pubKey = (BigInteger[]) GET_PUB_KEY.invoke(rsa);
+        ciphertext = (String) ENCRYPT.invoke(rsa, MESSAGE, pubKey);
+        signature = (String) SIGN.invoke(rsa, MESSAGE);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 5)
+    public Object keyGeneration() throws Throwable {
+        return NEW_RSA.invoke(bits);
+    }
+
+    @Benchmark
+    public String encrypt() throws Throwable {
+        return (String) ENCRYPT.invoke(rsa, MESSAGE, pubKey);
+    }
+
+    @Benchmark
+    public String decrypt() throws Throwable {
+        return (String) DECRYPT.invoke(rsa, ciphertext);
+    }
+
+    @Benchmark
+    public String sign() throws Throwable {
+        return (String) SIGN.invoke(rsa, MESSAGE);
+    }
+
+    @Benchmark
+    public String authenticate() throws Throwable {
+        return (String) AUTHENTICATE.invoke(rsa, signature, pubKey);
+    }
+}
@@ -0,0 +1,50 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * <h1>Targets</h1>
+ * <p>Resolves the benchmarked classes.  They live in the default package, which JMH benchmark classes may not
+ * use and which named packages cannot import, so they are bound once through method handles.  The handles are
+ * stored in static final fields, which the JIT treats as constants and inlines through.</p>
+ */
+final class Targets {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+    private Targets() {
+    }
+
+    static Class<?> type(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Benchmark target not on the classpath: " + name, e);
+        }
+    }
+
+    static MethodHandle constructor(String owner, Class<?>... params) {
+        try {
+            return LOOKUP.findConstructor(type(owner), MethodType.methodType(void.class, params));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Missing constructor on " + owner, e);
+        }
+    }
+
+    static MethodHandle method(String owner, String name, Class<?> returnType, Class<?>... params) {
+        try {
+            return LOOKUP.findVirtual(type(owner), name, MethodType.methodType(returnType, params));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Missing method " + owner + "." + name, e);
+        }
+    }
+
+    static MethodHandle staticMethod(String owner, String name, Class<?> returnType, Class<?>... params) {
+        try {
+            return LOOKUP.findStatic(type(owner), name, MethodType.methodType(returnType, params));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Missing method " + owner + "." + name, e);
+        }
+    }
+}
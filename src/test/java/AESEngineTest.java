@@ -0,0 +1,105 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * <h1>AESEngineTest</h1>
+ * <p>The FIPS-197 known-answer vectors for AES-128 on the table and bitsliced engines, and the two engines
+ * against each other and against the JDK's AES for batches of every shape.</p>
+ */
+class AESEngineTest {
+    private static final int BLOCK_SIZE = AESEngine.BLOCK_SIZE;
+
+    // FIPS-197 Appendix B, and Appendix C.1
+    private static final String[][] VECTORS = {
+            {"2b7e151628aed2a6abf7158809cf4f3c", "3243f6a8885a308d313198a2e0370734", "3925841d02dc09fbdc118597196a0b32"},
+            {"000102030405060708090a0b0c0d0e0f", "00112233445566778899aabbccddeeff", "69c4e0d86a7b0430d8cdb78070b4c55a"},
+    };
+
+    @Test
+    void tableEngineMatchesFips197() {
+        for (String[] vector : VECTORS) {
+            AESEngine engine = new AESEngine(hex(vector[0]));
+            byte[] plaintext = hex(vector[1]);
+            byte[] ciphertext = hex(vector[2]);
+            byte[] out = new byte[BLOCK_SIZE];
+            engine.encryptBlock(plaintext, 0, out, 0);
+            assertArrayEquals(ciphertext, out);
+            engine.decryptBlock(ciphertext, 0, out, 0);
+            assertArrayEquals(plaintext, out);
+        }
+    }
+
+    @Test
+    void bitslicedEngineMatchesFips197() {
+        for (String[] vector : VECTORS) {
+            BulkEngine engine = new BitslicedEngine(new AESEngine(hex(vector[0])));
+            byte[] plaintext = hex(vector[1]);
+            byte[] ciphertext = hex(vector[2]);
+            byte[] out = new byte[BLOCK_SIZE];
+            engine.encryptBlocks(plaintext, 0, out, 0, 1);
+            assertArrayEquals(ciphertext, out);
+            engine.decryptBlocks(ciphertext, 0, out, 0, 1);
+            assertArrayEquals(plaintext, out);
+        }
+    }
+
+    // Partial, whole and multiple bitsliced batches, at an offset, both out of place and in place
+    @Test
+    void enginesAgree() {
+        Random random = new Random(197);
+        for (int blocks : new int[] {1, 2, 63, 64, 65, 128, 130, 1000}) {
+            byte[] key = new byte[BLOCK_SIZE];
+            random.nextBytes(key);
+            AESEngine table = new AESEngine(key);
+            BulkEngine bitsliced = new BitslicedEngine(table);
+            byte[] input = new byte[3 + blocks * BLOCK_SIZE];
+            random.nextBytes(input);
+
+            byte[] expected = new byte[input.length];
+            byte[] actual = new byte[input.length + 5];
+            table.encryptBlocks(input, 3, expected, 3, blocks);
+            bitsliced.encryptBlocks(input, 3, actual, 8, blocks);
+            assertArrayEquals(Arrays.copyOfRange(expected, 3, expected.length),
+                    Arrays.copyOfRange(actual, 8, actual.length), "encrypt, " + blocks + " blocks");
+
+            table.decryptBlocks(input, 3, expected, 3, blocks);
+            byte[] inPlace = input.clone();
+            bitsliced.decryptBlocks(inPlace, 3, inPlace, 3, blocks);
+            assertArrayEquals(Arrays.copyOfRange(expected, 3, expected.length),
+                    Arrays.copyOfRange(inPlace, 3, inPlace.length), "decrypt, " + blocks + " blocks");
+        }
+    }
+
+    @Test
+    void enginesMatchJdk() throws Exception {
+        Random random = new Random(38);
+        byte[] key = new byte[BLOCK_SIZE];
+        random.nextBytes(key);
+        byte[] input = new byte[200 * BLOCK_SIZE];
+        random.nextBytes(input);
+        Cipher cipher = Cipher.getInstance("AES/ECB/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"));
+        byte[] expected = cipher.doFinal(input);
+
+        AESEngine table = new AESEngine(key);
+        for (BulkEngine engine : new BulkEngine[] {table, new BitslicedEngine(table)}) {
+            byte[] out = new byte[input.length];
+            engine.encryptBlocks(input, 0, out, 0, 200);
+            assertArrayEquals(expected, out, engine.getClass().getName());
+            engine.decryptBlocks(expected, 0, out, 0, 200);
+            assertArrayEquals(input, out, engine.getClass().getName());
+        }
+    }
+
+    private static byte[] hex(String hex) {
+        return HexFormat.of().parseHex(hex);
+    }
+}
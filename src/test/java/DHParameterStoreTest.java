@@ -0,0 +1,70 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * <h1>DHParameterStoreTest</h1>
+ * <p>Saving and loading generated groups, and rejection of files whose digest or contents were altered.</p>
+ */
+class DHParameterStoreTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void saveLoadRoundTrip() throws IOException {
+        DHParameterStore store = new DHParameterStore();
+        store.generate("small", 64, 256);
+        store.generate("grüße", 128, 384);
+        Path file = dir.resolve("groups.bin");
+        store.save(file);
+
+        DHParameterStore loaded = DHParameterStore.load(file);
+        assertEquals(store.names(), loaded.names());
+        for (String name : store.names()) {
+            assertEquals(store.get(name).getPrime(), loaded.get(name).getPrime(), name);
+            assertEquals(store.get(name).getGenerator(), loaded.get(name).getGenerator(), name);
+        }
+        DHE dhe = loaded.get("small");
+        BigInteger a = dhe.getBase(64);
+        BigInteger b = dhe.getBase(64);
+        assertEquals(dhe.getKey(a, dhe.getExponent(b)), dhe.getKey(b, dhe.getExponent(a)));
+    }
+
+    @Test
+    void rejectsAlteredFiles() throws IOException {
+        DHParameterStore store = new DHParameterStore();
+        store.generate("small", 64, 256);
+        Path file = dir.resolve("groups.bin");
+        store.save(file);
+        byte[] saved = Files.readAllBytes(file);
+
+        for (int i : new int[] {0, 10, saved.length / 2, saved.length - 1}) {
+            byte[] altered = saved.clone();
+            altered[i] ^= 1;
+            Path corrupt = dir.resolve("corrupt-" + i + ".bin");
+            Files.write(corrupt, altered);
+            assertThrows(IOException.class, () -> DHParameterStore.load(corrupt), "byte " + i);
+        }
+        Path truncated = dir.resolve("truncated.bin");
+        Files.write(truncated, new byte[8]);
+        assertThrows(IOException.class, () -> DHParameterStore.load(truncated));
+    }
+
+    @Test
+    void rejectsBadGroups() {
+        DHParameterStore store = new DHParameterStore();
+        BigInteger prime = DHGroup.MODP_2048.getPrime();
+        assertThrows(IllegalArgumentException.class, () -> store.register("MODP_2048", prime, BigInteger.TWO));
+        assertThrows(IllegalArgumentException.class, () -> store.register("one", prime, BigInteger.ONE));
+        assertThrows(IllegalArgumentException.class,
+                () -> store.register("composite", prime.add(BigInteger.TWO), BigInteger.TWO));
+        assertThrows(IllegalArgumentException.class, () -> store.get("missing"));
+    }
+}
@@ -0,0 +1,78 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * <h1>EnvelopeTest</h1>
+ * <p>The byte array and stream forms of {@link Envelope} against each other, and rejection of an envelope
+ * with any single bit flipped, in the wrapped key, the nonce, the ciphertext or the tag.</p>
+ */
+class EnvelopeTest {
+    private static final RSA RECIPIENT = new RSA(512);
+    private static final Envelope ENVELOPE = new Envelope(RECIPIENT);
+
+    @Test
+    void streamSealedOpensAsBytes() throws IOException {
+        Random random = new Random(8017);
+        for (int length : new int[] {0, 1, 15, 16, 17, 1000, 70_000}) {
+            byte[] message = new byte[length];
+            random.nextBytes(message);
+            ByteArrayOutputStream sink = new ByteArrayOutputStream();
+            try (OutputStream out = ENVELOPE.seal(sink, RECIPIENT.getPubKey())) {
+                // Uneven writes, single bytes included
+                for (int off = 0; off < length; ) {
+                    int n = Math.min(length - off, 1 + random.nextInt(5000));
+                    if (n == 1) {
+                        out.write(message[off]);
+                    } else {
+                        out.write(message, off, n);
+                    }
+                    off += n;
+                }
+            }
+            assertArrayEquals(message, ENVELOPE.open(sink.toByteArray()), length + " bytes");
+        }
+    }
+
+    @Test
+    void bytesSealedOpenAsStream() throws IOException {
+        Random random = new Random(5116);
+        for (int length : new int[] {0, 1, 16, 1000, 70_000}) {
+            byte[] message = new byte[length];
+            random.nextBytes(message);
+            byte[] envelope = ENVELOPE.seal(message, RECIPIENT.getPubKey());
+            try (InputStream in = ENVELOPE.open(new ByteArrayInputStream(envelope))) {
+                assertArrayEquals(message, in.readAllBytes(), length + " bytes");
+            }
+        }
+    }
+
+    @Test
+    void rejectsFlippedBits() {
+        byte[] message = new byte[40];
+        new Random(38).nextBytes(message);
+        byte[] envelope = ENVELOPE.seal(message, RECIPIENT.getPubKey());
+        for (int i = 0; i < envelope.length; i++) {
+            byte[] altered = envelope.clone();
+            altered[i] ^= (byte) (1 << (i & 7));
+            assertThrows(IllegalArgumentException.class, () -> ENVELOPE.open(altered), "byte " + i);
+            assertThrows(IOException.class,
+                    () -> ENVELOPE.open(new ByteArrayInputStream(altered)).readAllBytes(), "byte " + i);
+        }
+    }
+
+    @Test
+    void rejectsOtherRecipients() {
+        byte[] envelope = ENVELOPE.seal(new byte[10], new RSA(512).getPubKey());
+        assertThrows(IllegalArgumentException.class, () -> ENVELOPE.open(envelope));
+        assertThrows(IllegalArgumentException.class, () -> ENVELOPE.open(new byte[10]));
+    }
+}
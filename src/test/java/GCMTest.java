@@ -0,0 +1,145 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * <h1>GCMTest</h1>
+ * <p>The AES-128 test cases with 96-bit IVs from the GCM specification that SP 800-38D refers to, the
+ * streaming session against the one-shot calls, and random messages against the JDK's AES/GCM.</p>
+ */
+class GCMTest {
+    private static final String KEY = "Thats my Kung Fu";
+    private static final String SPEC_KEY = "feffe9928665731c6d6a8f9467308308";
+    private static final String SPEC_NONCE = "cafebabefacedbaddecaf888";
+    private static final String PLAINTEXT = "d9313225f88406e5a55909c5aff5269a86a7a9531534f7da2e4c303d8a318a72"
+            + "1c3c0c95956809532fcf0e2449a6b525b16aedf5aa0de657ba637b391aafd255";
+    private static final String CIPHERTEXT = "42831ec2217774244b7221b784d0d49ce3aa212f2c02a4e035c17e2329aca12e"
+            + "21d514b25466931c7d8f6a5aac84aa051ba30b396a0aac973d58e091473f5985";
+
+    // Key, nonce, AAD, plaintext, ciphertext and tag of test cases 1 to 4
+    private static final String[][] VECTORS = {
+            {"00000000000000000000000000000000", "000000000000000000000000", "", "", "",
+                    "58e2fccefa7e3061367f1d57a4e7455a"},
+            {"00000000000000000000000000000000", "000000000000000000000000", "", "00000000000000000000000000000000",
+                    "0388dace60b6a392f328c2b971b2fe78", "ab6e47d42cec13bdf53a67b21257bddf"},
+            {SPEC_KEY, SPEC_NONCE, "", PLAINTEXT, CIPHERTEXT, "4d5c2af327cd64a62cf35abd2ba6fab4"},
+            {SPEC_KEY, SPEC_NONCE, "feedfacedeadbeeffeedfacedeadbeefabaddad2", PLAINTEXT.substring(0, 120),
+                    CIPHERTEXT.substring(0, 120), "5bc94fbc3221a5db94fae95ae7121a47"},
+    };
+
+    @Test
+    void matchesKnownAnswers() {
+        for (String[] vector : VECTORS) {
+            GCM gcm = new GCM(new AES(hex(vector[0]), false));
+            byte[] nonce = hex(vector[1]);
+            byte[] aad = hex(vector[2]);
+            byte[] sealed = hex(vector[4] + vector[5]);
+            assertArrayEquals(sealed, gcm.encrypt(nonce, aad, hex(vector[3])));
+            assertArrayEquals(hex(vector[3]), gcm.decrypt(nonce, aad, sealed));
+        }
+    }
+
+    @Test
+    void rejectsAlteredMessages() {
+        GCM gcm = new GCM(new AES(KEY, false));
+        byte[] nonce = hex("cafebabefacedbaddecaf888");
+        byte[] aad = "header".getBytes(StandardCharsets.UTF_8);
+        byte[] sealed = gcm.encrypt(nonce, aad, "Two One Nine Two, and then some".getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < sealed.length; i++) {
+            byte[] altered = sealed.clone();
+            altered[i] ^= 1;
+            assertThrows(IllegalArgumentException.class, () -> gcm.decrypt(nonce, aad, altered));
+        }
+        byte[] alteredAad = aad.clone();
+        alteredAad[0] ^= 1;
+        assertThrows(IllegalArgumentException.class, () -> gcm.decrypt(nonce, alteredAad, sealed));
+    }
+
+    // AAD and payload fed to a session in uneven pieces
+    @Test
+    void sessionMatchesOneShot() {
+        GCM gcm = new GCM(new AES(KEY, false));
+        byte[] nonce = hex("cafebabefacedbaddecaf888");
+        Random random = new Random(38);
+        byte[] aad = new byte[20];
+        byte[] plaintext = new byte[60];
+        random.nextBytes(aad);
+        random.nextBytes(plaintext);
+        byte[] sealed = gcm.encrypt(nonce, aad, plaintext);
+        byte[] tag = new byte[GCM.TAG_SIZE];
+        System.arraycopy(sealed, plaintext.length, tag, 0, GCM.TAG_SIZE);
+        int[] cuts = {0, 1, 15, 17, 33, 48, plaintext.length};
+
+        GCM.Session session = gcm.session(nonce);
+        session.updateAAD(aad, 0, 7);
+        session.updateAAD(aad, 7, aad.length - 7);
+        byte[] ciphertext = new byte[plaintext.length];
+        for (int i = 1; i < cuts.length; i++) {
+            session.encrypt(plaintext, cuts[i - 1], cuts[i] - cuts[i - 1], ciphertext, cuts[i - 1]);
+        }
+        assertArrayEquals(Arrays.copyOf(sealed, plaintext.length), ciphertext);
+        assertArrayEquals(tag, session.tag());
+
+        session = gcm.session(nonce);
+        session.updateAAD(aad, 0, aad.length);
+        byte[] decrypted = new byte[plaintext.length];
+        for (int i = 1; i < cuts.length; i++) {
+            session.decrypt(ciphertext, cuts[i - 1], cuts[i] - cuts[i - 1], decrypted, cuts[i - 1]);
+        }
+        assertArrayEquals(plaintext, decrypted);
+        assertTrue(session.verify(tag));
+
+        session = gcm.session(nonce);
+        session.decrypt(ciphertext, 0, ciphertext.length, decrypted, 0);
+        assertFalse(session.verify(tag), "The tag must cover the AAD");
+    }
+
+    @Test
+    void matchesJdk() throws Exception {
+        Random random = new Random(3800);
+        for (int length : new int[] {0, 1, 16, 31, 64, 1000, 8195}) {
+            StringBuilder key = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                key.append((char) ('!' + random.nextInt(94)));
+            }
+            byte[] nonce = new byte[GCM.NONCE_SIZE];
+            byte[] aad = new byte[length % 37];
+            byte[] plaintext = new byte[length];
+            random.nextBytes(nonce);
+            random.nextBytes(aad);
+            random.nextBytes(plaintext);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key.toString().getBytes(StandardCharsets.UTF_8), "AES"),
+                    new GCMParameterSpec(128, nonce));
+            cipher.updateAAD(aad);
+            byte[] expected = cipher.doFinal(plaintext);
+            GCM gcm = new GCM(new AES(key.toString(), false));
+            byte[] actual = gcm.encrypt(nonce, aad, plaintext);
+            assertArrayEquals(expected, actual, length + " bytes");
+            assertArrayEquals(plaintext, gcm.decrypt(nonce, aad, actual));
+        }
+    }
+
+    @Test
+    void rejectsBadInput() {
+        GCM gcm = new GCM(new AES(KEY, false));
+        assertThrows(IllegalArgumentException.class, () -> gcm.session(new byte[16]));
+        assertThrows(IllegalArgumentException.class, () -> gcm.decrypt(new byte[12], new byte[0], new byte[15]));
+    }
+
+    private static byte[] hex(String hex) {
+        return HexFormat.of().parseHex(hex);
+    }
+}
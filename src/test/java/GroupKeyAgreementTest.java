@@ -0,0 +1,54 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * <h1>GroupKeyAgreementTest</h1>
+ * <p>Every member's own steps against the tree that {@link GroupKeyAgreement#agree} deals, for groups of
+ * two members up to a full tree of sixteen.</p>
+ */
+class GroupKeyAgreementTest {
+    private static final DHE GROUP = new DHE(DHGroup.MODP_2048);
+    private static final GroupKeyAgreement AGREEMENT = new GroupKeyAgreement(GROUP);
+
+    @Test
+    void membersReachTheDealtKey() {
+        for (int n : new int[] {2, 3, 7, 16}) {
+            List<BigInteger> secrets = secrets(n);
+            GroupKeyAgreement.Tree tree = AGREEMENT.agree(secrets);
+            assertEquals(n, tree.getMembers());
+            for (int member = 0; member < n; member++) {
+                List<BigInteger> copath = tree.getCopath(member);
+                assertEquals(tree.getKey(), AGREEMENT.computeKey(secrets.get(member), copath),
+                        n + " members, member " + member);
+                List<BigInteger> path = AGREEMENT.computePath(secrets.get(member), copath);
+                assertEquals(copath.size() + 1, path.size());
+                assertEquals(GROUP.getExponent(tree.getKey()), path.get(path.size() - 1));
+            }
+        }
+    }
+
+    @Test
+    void rejectsBadInput() {
+        assertThrows(IllegalArgumentException.class, () -> AGREEMENT.agree(secrets(1)));
+        GroupKeyAgreement.Tree tree = AGREEMENT.agree(secrets(3));
+        assertThrows(IllegalArgumentException.class, () -> tree.getCopath(3));
+        BigInteger secret = GROUP.getBase(256);
+        assertThrows(IllegalArgumentException.class, () -> AGREEMENT.computeKey(secret, List.of(BigInteger.ONE)));
+        assertThrows(IllegalArgumentException.class,
+                () -> AGREEMENT.computePath(secret, List.of(GROUP.getPrime().subtract(BigInteger.ONE))));
+    }
+
+    private static List<BigInteger> secrets(int n) {
+        List<BigInteger> secrets = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            secrets.add(GROUP.getBase(256));
+        }
+        return secrets;
+    }
+}
@@ -0,0 +1,91 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * <h1>MontgomeryTest</h1>
+ * <p>{@link Montgomery#pow} and {@link Montgomery.FixedBase#pow} against {@link BigInteger#modPow} for odd
+ * moduli at and around the 64-bit word boundaries, with edge-case and random bases and exponents.</p>
+ */
+class MontgomeryTest {
+    private static final int[] MODULUS_BITS = {2, 3, 63, 64, 65, 127, 128, 129, 521, 1024, 2048};
+
+    @Test
+    void powMatchesModPow() {
+        Random random = new Random(8017);
+        for (int bits : MODULUS_BITS) {
+            BigInteger modulus = oddModulus(bits, random);
+            Montgomery montgomery = new Montgomery(modulus);
+            for (BigInteger base : bases(modulus, random)) {
+                for (BigInteger exponent : exponents(bits, random)) {
+                    assertEquals(base.modPow(exponent, modulus), montgomery.pow(base, exponent),
+                            base + "^" + exponent + " mod " + modulus);
+                }
+            }
+        }
+    }
+
+    @Test
+    void negativeExponentsUseTheInverse() {
+        BigInteger modulus = BigInteger.valueOf(1_000_003); // Prime
+        Montgomery montgomery = new Montgomery(modulus);
+        BigInteger base = BigInteger.valueOf(12345);
+        BigInteger exponent = BigInteger.valueOf(-77);
+        assertEquals(base.modPow(exponent, modulus), montgomery.pow(base, exponent));
+        assertThrows(ArithmeticException.class, () -> montgomery.pow(modulus, exponent));
+    }
+
+    @Test
+    void fixedBaseMatchesModPow() {
+        Random random = new Random(3526);
+        for (int bits : MODULUS_BITS) {
+            BigInteger modulus = oddModulus(bits, random);
+            Montgomery montgomery = new Montgomery(modulus);
+            for (BigInteger base : bases(modulus, random)) {
+                Montgomery.FixedBase powers = montgomery.fixedBase(base, bits);
+                for (BigInteger exponent : exponents(bits, random)) {
+                    assertEquals(base.modPow(exponent, modulus), powers.pow(exponent),
+                            base + "^" + exponent + " mod " + modulus);
+                }
+                // Longer than the table, so it falls back to pow
+                BigInteger longer = BigInteger.ONE.shiftLeft(bits + 7).add(BigInteger.valueOf(bits));
+                assertEquals(base.modPow(longer, modulus), powers.pow(longer));
+            }
+        }
+    }
+
+    @Test
+    void rejectsEvenModuli() {
+        assertThrows(IllegalArgumentException.class, () -> new Montgomery(BigInteger.ONE));
+        assertThrows(IllegalArgumentException.class, () -> new Montgomery(BigInteger.valueOf(1L << 40)));
+        assertThrows(IllegalArgumentException.class, () -> new Montgomery(BigInteger.valueOf(-7)));
+    }
+
+    private static BigInteger oddModulus(int bits, Random random) {
+        return new BigInteger(bits - 1, random).setBit(bits - 1).setBit(0);
+    }
+
+    private static BigInteger[] bases(BigInteger modulus, Random random) {
+        BigInteger minusOne = modulus.subtract(BigInteger.ONE);
+        return new BigInteger[] {
+                BigInteger.ZERO, BigInteger.ONE, BigInteger.TWO, minusOne, modulus, modulus.add(BigInteger.TWO),
+                new BigInteger(modulus.bitLength() + 70, random).negate(),
+                new BigInteger(modulus.bitLength(), random).mod(modulus),
+                new BigInteger(modulus.bitLength(), random).mod(modulus),
+        };
+    }
+
+    // Zero, one, single bits and all-ones runs at the 5-bit digit and 64-bit word edges, and random ones
+    private static BigInteger[] exponents(int bits, Random random) {
+        return new BigInteger[] {
+                BigInteger.ZERO, BigInteger.ONE, BigInteger.TWO, BigInteger.valueOf(31), BigInteger.valueOf(32),
+                BigInteger.ONE.shiftLeft(bits - 1), BigInteger.ONE.shiftLeft(bits).subtract(BigInteger.ONE),
+                BigInteger.ONE.shiftLeft(Math.min(bits, 64)).subtract(BigInteger.ONE),
+                new BigInteger(bits, random), new BigInteger(bits, random), new BigInteger(bits, random),
+        };
+    }
+}
@@ -0,0 +1,99 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * <h1>RSATest</h1>
+ * <p>The CRT private-key operation, Garner recombination included, against x<sup>d</sup> mod n computed
+ * directly, for keys of two to four primes, and the width and round trips of multi-prime keys.</p>
+ */
+class RSATest {
+    private static final int BITS = 512;
+
+    @Test
+    void signMatchesModPow() {
+        Random random = new Random(8017);
+        for (int primes = 2; primes <= 4; primes++) {
+            RSA rsa = new RSA(BITS, primes);
+            BigInteger d = rsa.getPrivKey()[0];
+            BigInteger n = rsa.getPrivKey()[1];
+            int width = (n.bitLength() + 7) / 8;
+            StringBuilder message = new StringBuilder();
+            for (int i = 0; i < 3 * (width - 2) + 5; i++) {
+                message.append((char) ('!' + random.nextInt(94)));
+            }
+
+            byte[] signature = Hex.decode(rsa.sign(message.toString()));
+            byte[] bytes = message.toString().getBytes(StandardCharsets.UTF_8);
+            for (int off = 0, at = 0; off < bytes.length; off += width - 2, at += width) {
+                byte[] block = new byte[Math.min(width - 2, bytes.length - off) + 1];
+                block[0] = 1;
+                System.arraycopy(bytes, off, block, 1, block.length - 1);
+                BigInteger actual = new BigInteger(1, Arrays.copyOfRange(signature, at, at + width));
+                assertEquals(new BigInteger(1, block).modPow(d, n), actual, primes + " primes, block at " + at);
+            }
+        }
+    }
+
+    // Ciphertext blocks built with modPow(e, n), so that only decrypt goes through the CRT
+    @Test
+    void decryptMatchesModPow() {
+        Random random = new Random(5869);
+        for (int primes = 2; primes <= 4; primes++) {
+            RSA rsa = new RSA(BITS, primes);
+            BigInteger e = rsa.getPubKey()[0];
+            BigInteger n = rsa.getPubKey()[1];
+            int width = (n.bitLength() + 7) / 8;
+            for (int i = 0; i < 20; i++) {
+                byte[] message = new byte[1 + random.nextInt(width - 2)];
+                random.nextBytes(message);
+                byte[] block = new byte[message.length + 1];
+                block[0] = 1;
+                System.arraycopy(message, 0, block, 1, message.length);
+                byte[] c = new BigInteger(1, block).modPow(e, n).toByteArray();
+                byte[] ciphertext = new byte[width];
+                int copy = Math.min(c.length, width);
+                System.arraycopy(c, c.length - copy, ciphertext, width - copy, copy);
+                assertArrayEquals(message, rsa.decrypt(ciphertext), primes + " primes");
+            }
+        }
+    }
+
+    @Test
+    void modulusIsExactlyTwiceBits() {
+        for (int bits : new int[] {48, 100, 257, 512}) {
+            for (int primes = 2; primes <= 4; primes++) {
+                RSA rsa = new RSA(bits, primes);
+                assertEquals(2 * bits, rsa.getPubKey()[1].bitLength(), bits + " bits, " + primes + " primes");
+            }
+        }
+    }
+
+    @Test
+    void multiPrimeRoundTrip() {
+        String message = "Two One Nine Two, \u00fcber alles, and then some more to span several blocks";
+        for (int primes = 2; primes <= 4; primes++) {
+            RSA alice = new RSA(BITS, primes);
+            RSA bob = new RSA(BITS, primes);
+            assertEquals(message, bob.decrypt(alice.encrypt(message, bob.getPubKey())), primes + " primes");
+            assertEquals(message, bob.authenticate(alice.sign(message), alice.getPubKey()), primes + " primes");
+            byte[] bytes = new byte[300];
+            new Random(primes).nextBytes(bytes);
+            assertArrayEquals(bytes, bob.decrypt(alice.encrypt(bytes, bob.getPubKey())), primes + " primes");
+        }
+    }
+
+    @Test
+    void rejectsBadPrimeCounts() {
+        assertThrows(IllegalArgumentException.class, () -> new RSA(BITS, 1));
+        assertThrows(IllegalArgumentException.class, () -> new RSA(BITS, 5));
+        assertThrows(IllegalArgumentException.class, () -> new RSA(16, 3));
+    }
+}